@@ -25,6 +25,5 @@ class ScrollLayoutActivity : AppCompatActivity() {
             }
 
         })
-        frame_layout.post { behavior.showCollapsed() }
     }
 }
\ No newline at end of file
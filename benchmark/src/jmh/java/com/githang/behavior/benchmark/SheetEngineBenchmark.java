@@ -0,0 +1,114 @@
+package com.githang.behavior.benchmark;
+
+import com.githang.behavior.FlingSnapPolicy;
+import com.githang.behavior.SheetEngine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用合成的手势序列测量{@link SheetEngine}热路径的开销：
+ * 嵌套滑动的预处理、松手后停靠位置的选择以及状态的切换。
+ *
+ * <pre>./gradlew :benchmark:jmh</pre>
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-11-27
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SheetEngineBenchmark {
+
+    private static final int PARENT_HEIGHT = 2000;
+    private static final int FULL_EXPANDED_SPACE = 0;
+    private static final int HALF_EXPANDED_SPACE = 800;
+    private static final int COLLAPSED_SPACE = 1800;
+
+    /**
+     * 一次手势的事件数，约为120Hz下两秒的拖动
+     */
+    private static final int GESTURE_LENGTH = 240;
+
+    @Param({"0", "4"})
+    public int extraAnchors;
+
+    private SheetEngine mEngine;
+
+    private int[] mScrollDy;
+    private int[] mReleaseTops;
+    private float[] mReleaseVelocities;
+    private int[] mStates;
+
+    private final int[] mConsumed = new int[2];
+
+    @Setup
+    public void setUp() {
+        mEngine = new SheetEngine(new FlingSnapPolicy(5000, 150));
+        final float[] anchors = new float[extraAnchors];
+        final boolean[] fractions = new boolean[extraAnchors];
+        for (int i = 0; i < extraAnchors; i++) {
+            anchors[i] = (i + 1f) / (extraAnchors + 1);
+            fractions[i] = true;
+        }
+        mEngine.setExtraAnchors(anchors, fractions);
+        mEngine.setGeometry(PARENT_HEIGHT, FULL_EXPANDED_SPACE, HALF_EXPANDED_SPACE, COLLAPSED_SPACE);
+
+        final Random random = new Random(20181127);
+        mScrollDy = new int[GESTURE_LENGTH];
+        for (int i = 0; i < GESTURE_LENGTH; i++) {
+            // 先上滑再下滑，带一些抖动
+            final int direction = i < GESTURE_LENGTH / 2 ? 1 : -1;
+            mScrollDy[i] = direction * (4 + random.nextInt(24));
+        }
+        mReleaseTops = new int[GESTURE_LENGTH];
+        mReleaseVelocities = new float[GESTURE_LENGTH];
+        for (int i = 0; i < GESTURE_LENGTH; i++) {
+            mReleaseTops[i] = random.nextInt(COLLAPSED_SPACE + 1);
+            mReleaseVelocities[i] = (float) random.nextGaussian() * 4000;
+        }
+        mStates = new int[]{SheetEngine.STATE_DRAGGING, SheetEngine.STATE_SETTLING,
+                SheetEngine.STATE_HALF_EXPANDED, SheetEngine.STATE_DRAGGING, SheetEngine.STATE_SETTLING,
+                SheetEngine.STATE_FULL_EXPANDED, SheetEngine.STATE_DRAGGING, SheetEngine.STATE_COLLAPSED};
+    }
+
+    /**
+     * 一次完整拖动中的所有嵌套滑动预处理
+     */
+    @Benchmark
+    @OperationsPerInvocation(GESTURE_LENGTH)
+    public int nestedPreScroll() {
+        int top = COLLAPSED_SPACE;
+        for (int dy : mScrollDy) {
+            mConsumed[1] = 0;
+            final int state = mEngine.preScroll(top, dy, false, mConsumed);
+            if (state != SheetEngine.NO_STATE) {
+                top -= mConsumed[1];
+                mEngine.setState(state, SheetEngine.NO_ANCHOR);
+            }
+        }
+        return top;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GESTURE_LENGTH)
+    public void releaseResolution(Blackhole blackhole) {
+        for (int i = 0; i < GESTURE_LENGTH; i++) {
+            blackhole.consume(mEngine.findSnapIndex(mReleaseTops[i], mReleaseVelocities[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GESTURE_LENGTH)
+    public int stateDispatch() {
+        int changes = 0;
+        for (int i = 0; i < GESTURE_LENGTH; i++) {
+            if (mEngine.setState(mStates[i % mStates.length], SheetEngine.NO_ANCHOR) != SheetEngine.NO_STATE) {
+                changes++;
+            }
+        }
+        return changes;
+    }
+}
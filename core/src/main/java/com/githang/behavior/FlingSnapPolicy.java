@@ -0,0 +1,81 @@
+package com.githang.behavior;
+
+import java.util.Arrays;
+
+/**
+ * 根据松手时的速度按匀减速推算最终停下的位置，并选择离该位置最近的停靠点。
+ * 速度超过最小甩动速度时，至少会朝甩动的方向移动到下一个停靠点。
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-11-27
+ */
+public class FlingSnapPolicy implements SnapPolicy {
+
+    private final float mDeceleration;
+
+    private final float mMinFlingVelocity;
+
+    /**
+     * @param deceleration     减速度，单位为像素/秒²
+     * @param minFlingVelocity 最小甩动速度，单位为像素/秒，低于该速度时只选择最近的停靠点
+     */
+    public FlingSnapPolicy(float deceleration, float minFlingVelocity) {
+        if (deceleration <= 0) {
+            throw new IllegalArgumentException("deceleration must be positive: " + deceleration);
+        }
+        mDeceleration = deceleration;
+        mMinFlingVelocity = Math.abs(minFlingVelocity);
+    }
+
+    @Override
+    public int findSnapIndex(int currentTop, float velocity, int[] anchors) {
+        if (Math.abs(velocity) < mMinFlingVelocity) {
+            return findNearestIndex(currentTop, anchors);
+        }
+        final float projectedTop = currentTop + velocity * Math.abs(velocity) / (2 * mDeceleration);
+        final int index = findNearestIndex(Math.round(projectedTop), anchors);
+        if (velocity < 0) {
+            // 最后一个在当前位置之上的停靠点
+            final int above = lowerBound(currentTop, anchors) - 1;
+            return above >= 0 ? Math.min(index, above) : index;
+        } else {
+            // 第一个在当前位置之下的停靠点
+            final int below = upperBound(currentTop, anchors);
+            return below < anchors.length ? Math.max(index, below) : index;
+        }
+    }
+
+    /**
+     * @return 离top最近的停靠点下标，距离相同时选择靠上的
+     */
+    public static int findNearestIndex(int top, int[] anchors) {
+        final int index = Arrays.binarySearch(anchors, top);
+        if (index >= 0) {
+            return index;
+        }
+        final int insertion = -index - 1;
+        if (insertion == 0) {
+            return 0;
+        }
+        if (insertion == anchors.length) {
+            return anchors.length - 1;
+        }
+        return top - anchors[insertion - 1] <= anchors[insertion] - top ? insertion - 1 : insertion;
+    }
+
+    /**
+     * @return 第一个不小于top的停靠点下标
+     */
+    private static int lowerBound(int top, int[] anchors) {
+        final int index = Arrays.binarySearch(anchors, top);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * @return 第一个大于top的停靠点下标
+     */
+    private static int upperBound(int top, int[] anchors) {
+        final int index = Arrays.binarySearch(anchors, top);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+}
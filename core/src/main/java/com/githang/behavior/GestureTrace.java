@@ -0,0 +1,291 @@
+package com.githang.behavior;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 录制下来的一次或多次手势，包括触摸事件和嵌套滑动事件，用于离线重放。
+ * <p>
+ * 文本格式每行一个事件，第一列为距离上一个事件的毫秒数：
+ * <pre>
+ * # 注释
+ * initial 2
+ * 0 down 0:540,1800
+ * 8 move 0:540,1790
+ * 8 pdown 1 0:540,1780 1:800,1500
+ * 8 pup 0 0:540,1770 1:800,1490
+ * 8 up 1:800,1480
+ * 0 nstart touch
+ * 8 npre touch 24
+ * 0 nprefling -3000
+ * 0 nstop fling
+ * </pre>
+ * pdown/pup的第二列为按下或抬起的手指在事件中的下标，触摸点格式为“手指id:x,y”。
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-06
+ */
+public class GestureTrace {
+
+    public static final int KIND_TOUCH = 0;
+    public static final int KIND_NESTED_START = 1;
+    public static final int KIND_NESTED_PRE_SCROLL = 2;
+    public static final int KIND_NESTED_STOP = 3;
+    public static final int KIND_NESTED_PRE_FLING = 4;
+
+    /**
+     * 与android.view.MotionEvent的取值相同
+     */
+    public static final int ACTION_DOWN = 0;
+    public static final int ACTION_UP = 1;
+    public static final int ACTION_MOVE = 2;
+    public static final int ACTION_CANCEL = 3;
+    public static final int ACTION_POINTER_DOWN = 5;
+    public static final int ACTION_POINTER_UP = 6;
+
+    /**
+     * 与ViewCompat.TYPE_TOUCH、ViewCompat.TYPE_NON_TOUCH的取值相同
+     */
+    public static final int TYPE_TOUCH = 0;
+    public static final int TYPE_NON_TOUCH = 1;
+
+    /**
+     * 重放前需要先停靠的状态，为{@link SheetEngine#NO_STATE}时从当前状态开始
+     */
+    private int mInitialState = SheetEngine.NO_STATE;
+
+    private final List<Step> mSteps = new ArrayList<>();
+
+    public int getInitialState() {
+        return mInitialState;
+    }
+
+    public void setInitialState(int initialState) {
+        mInitialState = initialState;
+    }
+
+    public List<Step> getSteps() {
+        return Collections.unmodifiableList(mSteps);
+    }
+
+    public void add(Step step) {
+        mSteps.add(step);
+    }
+
+    /**
+     * 一个事件。触摸事件使用action、actionIndex及各手指的id和坐标，嵌套滑动事件使用type、dy和velocity
+     */
+    public static class Step {
+        public final int kind;
+        /**
+         * 距离上一个事件的毫秒数
+         */
+        public final long delay;
+        public final int action;
+        public final int actionIndex;
+        public final int[] pointerIds;
+        public final float[] xs;
+        public final float[] ys;
+        public final int type;
+        public final int dy;
+        public final float velocity;
+
+        private Step(int kind, long delay, int action, int actionIndex, int[] pointerIds, float[] xs, float[] ys,
+                     int type, int dy, float velocity) {
+            this.kind = kind;
+            this.delay = delay;
+            this.action = action;
+            this.actionIndex = actionIndex;
+            this.pointerIds = pointerIds;
+            this.xs = xs;
+            this.ys = ys;
+            this.type = type;
+            this.dy = dy;
+            this.velocity = velocity;
+        }
+
+        public static Step touch(long delay, int action, int actionIndex, int[] pointerIds, float[] xs, float[] ys) {
+            if (pointerIds.length == 0 || pointerIds.length != xs.length || pointerIds.length != ys.length) {
+                throw new IllegalArgumentException("pointer arrays must be non-empty and of equal length");
+            }
+            return new Step(KIND_TOUCH, delay, action, actionIndex, pointerIds, xs, ys, TYPE_TOUCH, 0, 0);
+        }
+
+        public static Step nestedStart(long delay, int type) {
+            return new Step(KIND_NESTED_START, delay, 0, 0, null, null, null, type, 0, 0);
+        }
+
+        public static Step nestedPreScroll(long delay, int type, int dy) {
+            return new Step(KIND_NESTED_PRE_SCROLL, delay, 0, 0, null, null, null, type, dy, 0);
+        }
+
+        public static Step nestedStop(long delay, int type) {
+            return new Step(KIND_NESTED_STOP, delay, 0, 0, null, null, null, type, 0, 0);
+        }
+
+        public static Step nestedPreFling(long delay, float velocity) {
+            return new Step(KIND_NESTED_PRE_FLING, delay, 0, 0, null, null, null, TYPE_NON_TOUCH, 0, velocity);
+        }
+    }
+
+    public void write(Appendable out) throws IOException {
+        if (mInitialState != SheetEngine.NO_STATE) {
+            out.append("initial ").append(String.valueOf(mInitialState)).append('\n');
+        }
+        for (Step step : mSteps) {
+            out.append(String.valueOf(step.delay)).append(' ');
+            switch (step.kind) {
+                case KIND_TOUCH:
+                    out.append(actionName(step.action));
+                    if (step.action == ACTION_POINTER_DOWN || step.action == ACTION_POINTER_UP) {
+                        out.append(' ').append(String.valueOf(step.actionIndex));
+                    }
+                    for (int i = 0; i < step.pointerIds.length; i++) {
+                        out.append(' ').append(String.valueOf(step.pointerIds[i])).append(':')
+                                .append(formatFloat(step.xs[i])).append(',').append(formatFloat(step.ys[i]));
+                    }
+                    break;
+                case KIND_NESTED_START:
+                    out.append("nstart ").append(typeName(step.type));
+                    break;
+                case KIND_NESTED_PRE_SCROLL:
+                    out.append("npre ").append(typeName(step.type)).append(' ').append(String.valueOf(step.dy));
+                    break;
+                case KIND_NESTED_STOP:
+                    out.append("nstop ").append(typeName(step.type));
+                    break;
+                case KIND_NESTED_PRE_FLING:
+                    out.append("nprefling ").append(formatFloat(step.velocity));
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown step kind: " + step.kind);
+            }
+            out.append('\n');
+        }
+    }
+
+    public static GestureTrace read(Reader in) throws IOException {
+        final BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        final GestureTrace trace = new GestureTrace();
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            final String[] tokens = line.split("\\s+");
+            try {
+                if ("initial".equals(tokens[0])) {
+                    trace.mInitialState = Integer.parseInt(tokens[1]);
+                } else {
+                    trace.add(parseStep(tokens));
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Malformed gesture trace at line " + lineNumber + ": " + line, e);
+            }
+        }
+        return trace;
+    }
+
+    private static Step parseStep(String[] tokens) {
+        final long delay = Long.parseLong(tokens[0]);
+        final String command = tokens[1];
+        switch (command) {
+            case "nstart":
+                return Step.nestedStart(delay, parseType(tokens[2]));
+            case "npre":
+                return Step.nestedPreScroll(delay, parseType(tokens[2]), Integer.parseInt(tokens[3]));
+            case "nstop":
+                return Step.nestedStop(delay, parseType(tokens[2]));
+            case "nprefling":
+                return Step.nestedPreFling(delay, Float.parseFloat(tokens[2]));
+            default:
+                break;
+        }
+        final int action = parseAction(command);
+        int first = 2;
+        int actionIndex = 0;
+        if (action == ACTION_POINTER_DOWN || action == ACTION_POINTER_UP) {
+            actionIndex = Integer.parseInt(tokens[2]);
+            first = 3;
+        }
+        final int count = tokens.length - first;
+        final int[] ids = new int[count];
+        final float[] xs = new float[count];
+        final float[] ys = new float[count];
+        for (int i = 0; i < count; i++) {
+            final String pointer = tokens[first + i];
+            final int colon = pointer.indexOf(':');
+            final int comma = pointer.indexOf(',', colon);
+            ids[i] = Integer.parseInt(pointer.substring(0, colon));
+            xs[i] = Float.parseFloat(pointer.substring(colon + 1, comma));
+            ys[i] = Float.parseFloat(pointer.substring(comma + 1));
+        }
+        return Step.touch(delay, action, actionIndex, ids, xs, ys);
+    }
+
+    private static int parseAction(String name) {
+        switch (name) {
+            case "down":
+                return ACTION_DOWN;
+            case "up":
+                return ACTION_UP;
+            case "move":
+                return ACTION_MOVE;
+            case "cancel":
+                return ACTION_CANCEL;
+            case "pdown":
+                return ACTION_POINTER_DOWN;
+            case "pup":
+                return ACTION_POINTER_UP;
+            default:
+                throw new IllegalArgumentException("Unknown command: " + name);
+        }
+    }
+
+    private static String actionName(int action) {
+        switch (action) {
+            case ACTION_DOWN:
+                return "down";
+            case ACTION_UP:
+                return "up";
+            case ACTION_MOVE:
+                return "move";
+            case ACTION_CANCEL:
+                return "cancel";
+            case ACTION_POINTER_DOWN:
+                return "pdown";
+            case ACTION_POINTER_UP:
+                return "pup";
+            default:
+                throw new IllegalArgumentException("Unknown action: " + action);
+        }
+    }
+
+    private static int parseType(String name) {
+        if ("touch".equals(name)) {
+            return TYPE_TOUCH;
+        } else if ("fling".equals(name)) {
+            return TYPE_NON_TOUCH;
+        }
+        throw new IllegalArgumentException("Unknown nested scroll type: " + name);
+    }
+
+    private static String typeName(int type) {
+        return type == TYPE_TOUCH ? "touch" : "fling";
+    }
+
+    private static String formatFloat(float value) {
+        if (value == Math.round(value)) {
+            return String.valueOf(Math.round(value));
+        }
+        return String.format(Locale.US, "%.1f", value);
+    }
+}
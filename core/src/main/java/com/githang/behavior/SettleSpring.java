@@ -0,0 +1,121 @@
+package com.githang.behavior;
+
+/**
+ * 临界阻尼弹簧，用于把面板沉降到停靠位置。
+ * 沉降中可以随时改变目标位置，当前的位置和速度会保留下来，因此连续改变目标时运动是连续的。
+ * 每一帧按解析解推进，不分配对象。
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-04
+ */
+public class SettleSpring {
+
+    /**
+     * 离目标小于该距离（像素）且速度足够小时认为已经停下
+     */
+    private static final float REST_DISTANCE = 0.5f;
+
+    /**
+     * 停下时的最大速度，单位为像素/秒
+     */
+    private static final float REST_VELOCITY = 30;
+
+    private final float mAngularFrequency;
+
+    private float mPosition;
+    private float mVelocity;
+    private float mTarget;
+
+    private float mMinPosition = -Float.MAX_VALUE;
+    private float mMaxPosition = Float.MAX_VALUE;
+
+    private boolean mRunning;
+
+    /**
+     * @param stiffness 刚度，越大沉降越快
+     */
+    public SettleSpring(float stiffness) {
+        if (stiffness <= 0) {
+            throw new IllegalArgumentException("stiffness must be positive: " + stiffness);
+        }
+        mAngularFrequency = (float) Math.sqrt(stiffness);
+    }
+
+    /**
+     * 设置运动范围，越界时停在边界上并清除该方向的速度
+     */
+    public void setBounds(float min, float max) {
+        mMinPosition = min;
+        mMaxPosition = max;
+    }
+
+    /**
+     * 从position以velocity（像素/秒）开始向target沉降
+     */
+    public void start(float position, float velocity, float target) {
+        mPosition = position;
+        mVelocity = velocity;
+        mTarget = target;
+        mRunning = true;
+    }
+
+    /**
+     * 沉降中改变目标位置，保留当前的位置和速度
+     */
+    public void retarget(float target) {
+        mTarget = target;
+        mRunning = true;
+    }
+
+    public void cancel() {
+        mRunning = false;
+    }
+
+    /**
+     * 推进dt秒
+     *
+     * @return 是否还在沉降
+     */
+    public boolean advance(float dt) {
+        if (!mRunning) {
+            return false;
+        }
+        if (dt > 0) {
+            final float w = mAngularFrequency;
+            final float c1 = mPosition - mTarget;
+            final float c2 = mVelocity + w * c1;
+            final float decay = (float) Math.exp(-w * dt);
+            mPosition = mTarget + (c1 + c2 * dt) * decay;
+            mVelocity = (c2 - w * (c1 + c2 * dt)) * decay;
+        }
+        if (mPosition < mMinPosition) {
+            mPosition = mMinPosition;
+            mVelocity = Math.max(0, mVelocity);
+        } else if (mPosition > mMaxPosition) {
+            mPosition = mMaxPosition;
+            mVelocity = Math.min(0, mVelocity);
+        }
+        if (Math.abs(mPosition - mTarget) < REST_DISTANCE && Math.abs(mVelocity) < REST_VELOCITY) {
+            mPosition = mTarget;
+            mVelocity = 0;
+            mRunning = false;
+        }
+        return mRunning;
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    public float getPosition() {
+        return mPosition;
+    }
+
+    public float getVelocity() {
+        return mVelocity;
+    }
+
+    public float getTarget() {
+        return mTarget;
+    }
+}
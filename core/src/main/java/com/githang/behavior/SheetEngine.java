@@ -0,0 +1,282 @@
+package com.githang.behavior;
+
+import java.util.Arrays;
+
+/**
+ * 与平台无关的滑动布局逻辑，包括状态、停靠位置、位置的限制以及松手后停靠位置的选择。
+ * 不依赖Android的类型，可以在普通的JVM上测试和做基准测试。
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-11-27
+ */
+public class SheetEngine {
+
+    /**
+     * 表示状态没有变化
+     */
+    public static final int NO_STATE = 0;
+    public static final int STATE_HIDDEN = 1;
+    public static final int STATE_COLLAPSED = 2;
+    public static final int STATE_HALF_EXPANDED = 3;
+    public static final int STATE_FULL_EXPANDED = 4;
+    public static final int STATE_DRAGGING = 5;
+    public static final int STATE_SETTLING = 6;
+    public static final int STATE_ANCHORED = 7;
+
+    /**
+     * 不是额外的停靠位置
+     */
+    public static final int NO_ANCHOR = -1;
+
+    private int mState = STATE_HIDDEN;
+
+    /**
+     * {@link #STATE_ANCHORED}时停靠位置在额外停靠位置中的下标
+     */
+    private int mAnchorId = NO_ANCHOR;
+
+    private int mFullExpandedSpace;
+
+    private int mCollapsedSpace;
+
+    /**
+     * 额外的停靠位置（距离顶部的空间）
+     */
+    private float[] mAnchorValues;
+
+    /**
+     * 对应的额外停靠位置是否为相对父布局高度的比例
+     */
+    private boolean[] mAnchorFractions;
+
+    /**
+     * 可停靠的位置，从小到大排列且不重复
+     */
+    private int[] mAnchors = new int[0];
+
+    /**
+     * 各停靠位置对应的状态
+     */
+    private int[] mAnchorStates = new int[0];
+
+    /**
+     * 各停靠位置在额外停靠位置中的下标，不是额外停靠位置的为{@link #NO_ANCHOR}
+     */
+    private int[] mAnchorIds = new int[0];
+
+    private SnapPolicy mSnapPolicy;
+
+    public SheetEngine(SnapPolicy snapPolicy) {
+        mSnapPolicy = snapPolicy;
+    }
+
+    public SnapPolicy getSnapPolicy() {
+        return mSnapPolicy;
+    }
+
+    public void setSnapPolicy(SnapPolicy snapPolicy) {
+        mSnapPolicy = snapPolicy;
+    }
+
+    /**
+     * 设置额外的停靠位置，在下次{@link #setGeometry(int, int, int, int)}时生效
+     *
+     * @param values    各停靠位置距离顶部的空间
+     * @param fractions 对应的值是否为相对父布局高度的比例，为null时都按像素处理
+     */
+    public void setExtraAnchors(float[] values, boolean[] fractions) {
+        mAnchorValues = values;
+        mAnchorFractions = fractions;
+    }
+
+    /**
+     * 按新的布局计算所有停靠位置
+     */
+    public void setGeometry(int parentHeight, int fullExpandedSpace, int halfExpandedSpace, int collapsedSpace) {
+        mFullExpandedSpace = fullExpandedSpace;
+        mCollapsedSpace = collapsedSpace;
+
+        final int extraCount = mAnchorValues == null ? 0 : mAnchorValues.length;
+        final int[] anchors = new int[3 + extraCount];
+        final int[] states = new int[anchors.length];
+        final int[] ids = new int[anchors.length];
+        int count = 0;
+        count = insertAnchor(anchors, states, ids, count, fullExpandedSpace, STATE_FULL_EXPANDED, NO_ANCHOR);
+        count = insertAnchor(anchors, states, ids, count,
+                Math.max(fullExpandedSpace, Math.min(halfExpandedSpace, collapsedSpace)),
+                STATE_HALF_EXPANDED, NO_ANCHOR);
+        count = insertAnchor(anchors, states, ids, count, collapsedSpace, STATE_COLLAPSED, NO_ANCHOR);
+        for (int i = 0; i < extraCount; i++) {
+            final boolean fraction = mAnchorFractions != null && mAnchorFractions[i];
+            final int top = Math.round(fraction ? mAnchorValues[i] * parentHeight : mAnchorValues[i]);
+            if (top > fullExpandedSpace && top < collapsedSpace) {
+                count = insertAnchor(anchors, states, ids, count, top, STATE_ANCHORED, i);
+            }
+        }
+        mAnchors = count == anchors.length ? anchors : Arrays.copyOf(anchors, count);
+        mAnchorStates = count == states.length ? states : Arrays.copyOf(states, count);
+        mAnchorIds = count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
+
+    private static int insertAnchor(int[] anchors, int[] states, int[] ids, int count,
+                                    int top, int state, int id) {
+        int index = Arrays.binarySearch(anchors, 0, count, top);
+        if (index >= 0) {
+            // 已有相同的位置，先加入的优先
+            return count;
+        }
+        index = -index - 1;
+        final int moved = count - index;
+        System.arraycopy(anchors, index, anchors, index + 1, moved);
+        System.arraycopy(states, index, states, index + 1, moved);
+        System.arraycopy(ids, index, ids, index + 1, moved);
+        anchors[index] = top;
+        states[index] = state;
+        ids[index] = id;
+        return count + 1;
+    }
+
+    public int getFullExpandedSpace() {
+        return mFullExpandedSpace;
+    }
+
+    public int getCollapsedSpace() {
+        return mCollapsedSpace;
+    }
+
+    /**
+     * @return 限制在全展开与收起之间的位置
+     */
+    public int clamp(int top) {
+        return top < mFullExpandedSpace ? mFullExpandedSpace : top > mCollapsedSpace ? mCollapsedSpace : top;
+    }
+
+    public int getDragRange() {
+        return mCollapsedSpace - mFullExpandedSpace;
+    }
+
+    public int getAnchorCount() {
+        return mAnchors.length;
+    }
+
+    public int getAnchorTop(int index) {
+        return mAnchors[index];
+    }
+
+    public int getAnchorState(int index) {
+        return mAnchorStates[index];
+    }
+
+    public int getAnchorId(int index) {
+        return mAnchorIds[index];
+    }
+
+    /**
+     * @return 额外停靠位置在所有停靠位置中的下标，不存在时返回-1
+     */
+    public int findAnchorIndex(int anchorId) {
+        for (int i = 0; i < mAnchorIds.length; i++) {
+            if (mAnchorIds[i] == anchorId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return 离top最近的停靠位置下标
+     */
+    public int findNearestAnchorIndex(int top) {
+        return FlingSnapPolicy.findNearestIndex(top, mAnchors);
+    }
+
+    /**
+     * @return 当前状态所在的停靠位置下标，不在停靠位置时返回-1
+     */
+    public int getCurrentAnchorIndex() {
+        if (mState == STATE_ANCHORED) {
+            return findAnchorIndex(mAnchorId);
+        }
+        for (int i = 0; i < mAnchorStates.length; i++) {
+            if (mAnchorStates[i] == mState) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return 当前状态需要停靠的位置，不在停靠状态时返回fallbackTop最近的停靠位置
+     */
+    public int getRestingTop(int fallbackTop) {
+        final int index = getCurrentAnchorIndex();
+        return mAnchors[index >= 0 ? index : findNearestAnchorIndex(fallbackTop)];
+    }
+
+    /**
+     * 选择松手后的停靠位置
+     *
+     * @param velocity 松手时的速度，单位为像素/秒，正数表示向下
+     * @return 停靠位置的下标
+     */
+    public int findSnapIndex(int currentTop, float velocity) {
+        return mSnapPolicy.findSnapIndex(currentTop, velocity, mAnchors);
+    }
+
+    /**
+     * 处理嵌套滑动子View滑动之前的滑动距离
+     *
+     * @param dy                向上为正的滑动距离
+     * @param targetCanScrollUp 嵌套滑动的子View是否还能向上滚动（即内容未到顶部）
+     * @param consumed          consumed[1]返回布局消耗的距离，布局应向上移动该距离
+     * @return 滑动后的状态，没有滑动时返回{@link #NO_STATE}
+     */
+    public int preScroll(int currentTop, int dy, boolean targetCanScrollUp, int[] consumed) {
+        final int newTop = currentTop - dy;
+        if (dy > 0) { // 上滑
+            if (newTop < mFullExpandedSpace) {
+                consumed[1] = currentTop - mFullExpandedSpace;
+                return STATE_FULL_EXPANDED;
+            }
+            consumed[1] = dy;
+            return STATE_DRAGGING;
+        } else if (dy < 0 && !targetCanScrollUp) { // 下滑
+            if (newTop <= mCollapsedSpace) {
+                consumed[1] = dy;
+                return STATE_DRAGGING;
+            }
+            consumed[1] = currentTop - mCollapsedSpace;
+            return STATE_COLLAPSED;
+        }
+        return NO_STATE;
+    }
+
+    public int getState() {
+        return mState;
+    }
+
+    public int getAnchorId() {
+        return mAnchorId;
+    }
+
+    /**
+     * @param anchorId state为{@link #STATE_ANCHORED}时停靠位置在额外停靠位置中的下标
+     * @return 原来的状态，状态没有变化时返回{@link #NO_STATE}
+     */
+    public int setState(int state, int anchorId) {
+        if (state != STATE_ANCHORED) {
+            anchorId = NO_ANCHOR;
+        }
+        if (mState == state && mAnchorId == anchorId) {
+            return NO_STATE;
+        }
+        final int oldState = mState;
+        mState = state;
+        mAnchorId = anchorId;
+        return oldState;
+    }
+
+    public boolean isExpanded() {
+        return mState == STATE_HALF_EXPANDED || mState == STATE_FULL_EXPANDED || mState == STATE_ANCHORED;
+    }
+}
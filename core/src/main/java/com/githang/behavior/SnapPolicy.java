@@ -0,0 +1,18 @@
+package com.githang.behavior;
+
+/**
+ * 松手后选择停靠位置的策略
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-11-27
+ */
+public interface SnapPolicy {
+
+    /**
+     * @param currentTop 松手时布局的顶部位置
+     * @param velocity   松手时的速度，单位为像素/秒，正数表示向下
+     * @param anchors    可停靠的顶部位置，从小到大排列且不重复
+     * @return 目标位置在anchors中的下标
+     */
+    int findSnapIndex(int currentTop, float velocity, int[] anchors);
+}
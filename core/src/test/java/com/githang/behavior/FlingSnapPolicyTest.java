@@ -0,0 +1,77 @@
+package com.githang.behavior;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-11-27
+ */
+public class FlingSnapPolicyTest {
+
+    private static final int FULL = 0;
+    private static final int HALF = 600;
+    private static final int COLLAPSED = 1400;
+
+    private final int[] mAnchors = {FULL, HALF, COLLAPSED};
+
+    private final FlingSnapPolicy mPolicy = new FlingSnapPolicy(4000, 100);
+
+    @Test
+    public void slowReleaseSnapsToNearest() {
+        assertEquals(1, mPolicy.findSnapIndex(900, 0, mAnchors));
+        assertEquals(2, mPolicy.findSnapIndex(1100, 50, mAnchors));
+        assertEquals(0, mPolicy.findSnapIndex(250, -80, mAnchors));
+    }
+
+    @Test
+    public void equalDistancePrefersUpperAnchor() {
+        assertEquals(0, mPolicy.findSnapIndex(300, 0, mAnchors));
+    }
+
+    @Test
+    public void hardUpwardFlingFromCollapsedReachesFullExpanded() {
+        // 6000px/s 在 4000px/s² 的减速度下可以滑过 4500px
+        assertEquals(0, mPolicy.findSnapIndex(COLLAPSED, -6000, mAnchors));
+    }
+
+    @Test
+    public void gentleUpwardFlingFromCollapsedStopsAtHalfExpanded() {
+        // 2000px/s 只能滑过 500px，最近的是半展开
+        assertEquals(1, mPolicy.findSnapIndex(COLLAPSED, -2000, mAnchors));
+    }
+
+    @Test
+    public void flingMovesAtLeastOneAnchorInItsDirection() {
+        // 推算位置仍离当前最近的停靠点更近，但已经超过最小甩动速度
+        assertEquals(0, mPolicy.findSnapIndex(500, -200, mAnchors));
+        assertEquals(2, mPolicy.findSnapIndex(700, 200, mAnchors));
+    }
+
+    @Test
+    public void hardDownwardFlingFromFullExpandedReachesCollapsed() {
+        assertEquals(2, mPolicy.findSnapIndex(FULL, 7000, mAnchors));
+    }
+
+    @Test
+    public void flingBeyondTheEdgeStaysAtTheEdge() {
+        assertEquals(0, mPolicy.findSnapIndex(FULL, -8000, mAnchors));
+        assertEquals(2, mPolicy.findSnapIndex(COLLAPSED, 8000, mAnchors));
+    }
+
+    @Test
+    public void resolvesAmongManyAnchors() {
+        final int[] anchors = {0, 350, 700, 1050, 1400};
+        assertEquals(2, mPolicy.findSnapIndex(760, 0, anchors));
+        // 推算位置为 1400 - 400 = 1000
+        assertEquals(3, mPolicy.findSnapIndex(1400, -1789, anchors));
+        assertEquals(3, mPolicy.findSnapIndex(700, 150, anchors));
+        assertEquals(1, mPolicy.findSnapIndex(700, -150, anchors));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveDeceleration() {
+        new FlingSnapPolicy(0, 100);
+    }
+}
@@ -0,0 +1,65 @@
+package com.githang.behavior;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-06
+ */
+public class GestureTraceTest {
+
+    private static final String TRACE = "initial 3\n"
+            + "0 down 0:540,1800\n"
+            + "8 move 0:540,1790.5\n"
+            + "8 pdown 1 0:540,1780 1:800,1500\n"
+            + "8 pup 0 0:540,1770 1:800,1490\n"
+            + "8 up 1:800,1480\n"
+            + "0 nstart touch\n"
+            + "8 npre touch 24\n"
+            + "0 nprefling -3000\n"
+            + "16 npre fling -60\n"
+            + "0 nstop fling\n";
+
+    @Test
+    public void parsesEveryKind() throws IOException {
+        final GestureTrace trace = GestureTrace.read(new StringReader("# comment\n\n" + TRACE));
+        assertEquals(SheetEngine.STATE_HALF_EXPANDED, trace.getInitialState());
+        assertEquals(10, trace.getSteps().size());
+
+        final GestureTrace.Step pointerDown = trace.getSteps().get(2);
+        assertEquals(GestureTrace.KIND_TOUCH, pointerDown.kind);
+        assertEquals(GestureTrace.ACTION_POINTER_DOWN, pointerDown.action);
+        assertEquals(1, pointerDown.actionIndex);
+        assertArrayEquals(new int[]{0, 1}, pointerDown.pointerIds);
+        assertEquals(1500, pointerDown.ys[1], 0);
+
+        assertEquals(1790.5f, trace.getSteps().get(1).ys[0], 0);
+
+        final GestureTrace.Step preScroll = trace.getSteps().get(8);
+        assertEquals(GestureTrace.KIND_NESTED_PRE_SCROLL, preScroll.kind);
+        assertEquals(GestureTrace.TYPE_NON_TOUCH, preScroll.type);
+        assertEquals(-60, preScroll.dy);
+        assertEquals(16, preScroll.delay);
+
+        assertEquals(-3000, trace.getSteps().get(7).velocity, 0);
+    }
+
+    @Test
+    public void writeIsInverseOfRead() throws IOException {
+        final GestureTrace trace = GestureTrace.read(new StringReader(TRACE));
+        final StringBuilder out = new StringBuilder();
+        trace.write(out);
+        assertEquals(TRACE, out.toString());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsUnknownCommand() throws IOException {
+        GestureTrace.read(new StringReader("0 wiggle 0:1,2\n"));
+    }
+}
@@ -0,0 +1,100 @@
+package com.githang.behavior;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-04
+ */
+public class SettleSpringTest {
+
+    private static final float FRAME = 1 / 60f;
+
+    private static final int FULL = 0;
+    private static final int HALF = 600;
+    private static final int COLLAPSED = 1400;
+
+    private final SettleSpring mSpring = new SettleSpring(400);
+
+    private int runToRest() {
+        int frames = 0;
+        while (mSpring.advance(FRAME)) {
+            frames++;
+            if (frames > 600) {
+                throw new AssertionError("spring did not settle");
+            }
+        }
+        return frames;
+    }
+
+    @Test
+    public void settlesExactlyOnTarget() {
+        mSpring.start(COLLAPSED, 0, FULL);
+        final int frames = runToRest();
+        assertEquals(FULL, mSpring.getPosition(), 0);
+        assertEquals(0, mSpring.getVelocity(), 0);
+        assertFalse(mSpring.isRunning());
+        // 与原来ViewDragHelper的最长沉降时间（600ms）在同一量级
+        assertTrue(frames < 60);
+    }
+
+    @Test
+    public void retargetKeepsPositionAndVelocity() {
+        mSpring.start(COLLAPSED, -3000, FULL);
+        mSpring.advance(FRAME);
+        mSpring.advance(FRAME);
+        final float position = mSpring.getPosition();
+        final float velocity = mSpring.getVelocity();
+        mSpring.retarget(HALF);
+        assertEquals(position, mSpring.getPosition(), 0);
+        assertEquals(velocity, mSpring.getVelocity(), 0);
+        // 重新设置目标后的第一帧仍沿原来的方向运动
+        mSpring.advance(FRAME);
+        assertTrue(mSpring.getPosition() < position);
+    }
+
+    @Test
+    public void rapidRetargetsSettleOnLastTarget() {
+        mSpring.start(COLLAPSED, 0, FULL);
+        final int[] targets = {HALF, COLLAPSED, FULL, HALF, COLLAPSED, HALF};
+        float last = mSpring.getPosition();
+        for (int target : targets) {
+            mSpring.retarget(target);
+            mSpring.advance(FRAME);
+            // 连续改变目标时每一帧的位移都是有限的，不会跳变
+            assertTrue(Math.abs(mSpring.getPosition() - last) < COLLAPSED / 4f);
+            last = mSpring.getPosition();
+        }
+        runToRest();
+        assertEquals(HALF, mSpring.getPosition(), 0);
+    }
+
+    @Test
+    public void boundsStopOvershoot() {
+        mSpring.setBounds(FULL, COLLAPSED);
+        mSpring.start(HALF, -20000, FULL);
+        while (mSpring.advance(FRAME)) {
+            assertTrue(mSpring.getPosition() >= FULL);
+        }
+        assertEquals(FULL, mSpring.getPosition(), 0);
+    }
+
+    @Test
+    public void cancelStopsWithoutMoving() {
+        mSpring.start(COLLAPSED, 0, FULL);
+        mSpring.advance(FRAME);
+        final float position = mSpring.getPosition();
+        mSpring.cancel();
+        assertFalse(mSpring.advance(FRAME));
+        assertEquals(position, mSpring.getPosition(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveStiffness() {
+        new SettleSpring(0);
+    }
+}
@@ -0,0 +1,79 @@
+package com.githang.behavior;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-11-27
+ */
+public class SheetEngineTest {
+
+    private SheetEngine mEngine;
+
+    private final int[] mConsumed = new int[2];
+
+    @Before
+    public void setUp() {
+        mEngine = new SheetEngine(new FlingSnapPolicy(4000, 100));
+        mEngine.setExtraAnchors(new float[]{0.25f, 1200, 800}, new boolean[]{true, false, false});
+        mEngine.setGeometry(2000, 100, 800, 1600);
+    }
+
+    @Test
+    public void anchorsAreSortedAndDeduplicated() {
+        // 800与半展开重复，只保留半展开
+        assertEquals(5, mEngine.getAnchorCount());
+        assertEquals(100, mEngine.getAnchorTop(0));
+        assertEquals(500, mEngine.getAnchorTop(1));
+        assertEquals(800, mEngine.getAnchorTop(2));
+        assertEquals(1200, mEngine.getAnchorTop(3));
+        assertEquals(1600, mEngine.getAnchorTop(4));
+        assertEquals(SheetEngine.STATE_HALF_EXPANDED, mEngine.getAnchorState(2));
+        assertEquals(SheetEngine.STATE_ANCHORED, mEngine.getAnchorState(3));
+        assertEquals(1, mEngine.getAnchorId(3));
+    }
+
+    @Test
+    public void clampsToDragRange() {
+        assertEquals(100, mEngine.clamp(-50));
+        assertEquals(1600, mEngine.clamp(1700));
+        assertEquals(900, mEngine.clamp(900));
+    }
+
+    @Test
+    public void preScrollStopsAtFullExpanded() {
+        assertEquals(SheetEngine.STATE_FULL_EXPANDED, mEngine.preScroll(130, 50, false, mConsumed));
+        assertEquals(30, mConsumed[1]);
+    }
+
+    @Test
+    public void preScrollDownWaitsForInnerContentToReachTop() {
+        mConsumed[1] = 0;
+        assertEquals(SheetEngine.NO_STATE, mEngine.preScroll(100, -20, true, mConsumed));
+        assertEquals(0, mConsumed[1]);
+        assertEquals(SheetEngine.STATE_DRAGGING, mEngine.preScroll(100, -20, false, mConsumed));
+        assertEquals(-20, mConsumed[1]);
+        assertEquals(SheetEngine.STATE_COLLAPSED, mEngine.preScroll(1590, -20, false, mConsumed));
+        assertEquals(-10, mConsumed[1]);
+    }
+
+    @Test
+    public void setStateReportsOldStateOnlyOnChange() {
+        assertEquals(SheetEngine.STATE_HIDDEN, mEngine.setState(SheetEngine.STATE_COLLAPSED, SheetEngine.NO_ANCHOR));
+        assertEquals(SheetEngine.NO_STATE, mEngine.setState(SheetEngine.STATE_COLLAPSED, SheetEngine.NO_ANCHOR));
+        assertEquals(SheetEngine.STATE_COLLAPSED, mEngine.setState(SheetEngine.STATE_ANCHORED, 0));
+        assertEquals(SheetEngine.STATE_ANCHORED, mEngine.setState(SheetEngine.STATE_ANCHORED, 1));
+        assertEquals(3, mEngine.getCurrentAnchorIndex());
+    }
+
+    @Test
+    public void restingTopFollowsAnchoredState() {
+        mEngine.setState(SheetEngine.STATE_ANCHORED, 0);
+        assertEquals(500, mEngine.getRestingTop(0));
+        mEngine.setState(SheetEngine.STATE_DRAGGING, SheetEngine.NO_ANCHOR);
+        assertEquals(1200, mEngine.getRestingTop(1300));
+    }
+}
@@ -0,0 +1,107 @@
+package com.githang.behavior;
+
+/**
+ * 一次手势（从按下到布局停靠）的性能数据。
+ * 同一个对象会被重复使用，只在{@link ScrollLayoutBehavior.GestureMetricsListener}回调期间有效。
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-11-27
+ */
+public class GestureMetrics {
+
+    int mLayoutPasses;
+
+    int mVisibilityToggles;
+
+    int mSlideDispatches;
+
+    int mSettleFrames;
+
+    long mSettleDuration;
+
+    long mFirstMoveLatency = -1;
+
+    int mLayerSlides;
+
+    int mRedrawSlides;
+
+    void reset() {
+        mLayoutPasses = 0;
+        mVisibilityToggles = 0;
+        mSlideDispatches = 0;
+        mSettleFrames = 0;
+        mSettleDuration = 0;
+        mFirstMoveLatency = -1;
+        mLayerSlides = 0;
+        mRedrawSlides = 0;
+    }
+
+    /**
+     * @return 手势期间布局的layout次数
+     */
+    public int getLayoutPasses() {
+        return mLayoutPasses;
+    }
+
+    /**
+     * @return 手势期间展开内容显示与隐藏的切换次数
+     */
+    public int getVisibilityToggles() {
+        return mVisibilityToggles;
+    }
+
+    /**
+     * @return 手势期间onSlide的回调次数
+     */
+    public int getSlideDispatches() {
+        return mSlideDispatches;
+    }
+
+    /**
+     * @return 松手后沉降所用的帧数
+     */
+    public int getSettleFrames() {
+        return mSettleFrames;
+    }
+
+    /**
+     * @return 松手后沉降所用的时间，单位为毫秒
+     */
+    public long getSettleDuration() {
+        return mSettleDuration;
+    }
+
+    /**
+     * @return 从按下到布局第一次移动的时间，单位为毫秒；布局没有移动时为-1
+     */
+    public long getFirstMoveLatency() {
+        return mFirstMoveLatency;
+    }
+
+    /**
+     * @return 移动期间展开内容使用硬件层或快照时onSlide的回调次数，每次回调对应一次移动，不一定是一帧
+     */
+    public int getLayerSlides() {
+        return mLayerSlides;
+    }
+
+    /**
+     * @return 移动期间展开内容正常绘制时onSlide的回调次数，每次回调对应一次移动，不一定是一帧
+     */
+    public int getRedrawSlides() {
+        return mRedrawSlides;
+    }
+
+    @Override
+    public String toString() {
+        return "GestureMetrics{layoutPasses=" + mLayoutPasses
+                + ", visibilityToggles=" + mVisibilityToggles
+                + ", slideDispatches=" + mSlideDispatches
+                + ", settleFrames=" + mSettleFrames
+                + ", settleDuration=" + mSettleDuration
+                + ", firstMoveLatency=" + mFirstMoveLatency
+                + ", layerSlides=" + mLayerSlides
+                + ", redrawSlides=" + mRedrawSlides
+                + '}';
+    }
+}
@@ -0,0 +1,66 @@
+package com.githang.behavior;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+/**
+ * 录制behavior收到的触摸事件和嵌套滑动事件，通过{@link ScrollLayoutBehavior#setGestureRecorder(GestureRecorder)}设置。
+ * 录制结果可以用{@link GestureTrace#write(Appendable)}保存，在单元测试中重放以复现问题。
+ * 每个触摸事件只记录最新的采样，不记录批量的历史采样。
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-06
+ */
+public class GestureRecorder {
+
+    private final GestureTrace mTrace = new GestureTrace();
+
+    private long mLastTime = -1;
+
+    public GestureTrace getTrace() {
+        return mTrace;
+    }
+
+    void start(@ScrollLayoutBehavior.State int state) {
+        if (mTrace.getSteps().isEmpty() && state != ScrollLayoutBehavior.STATE_DRAGGING
+                && state != ScrollLayoutBehavior.STATE_SETTLING) {
+            mTrace.setInitialState(state);
+        }
+    }
+
+    private long delay(long time) {
+        final long delay = mLastTime < 0 ? 0 : Math.max(0, time - mLastTime);
+        mLastTime = time;
+        return delay;
+    }
+
+    void recordTouch(MotionEvent event) {
+        final int count = event.getPointerCount();
+        final int[] ids = new int[count];
+        final float[] xs = new float[count];
+        final float[] ys = new float[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = event.getPointerId(i);
+            xs[i] = event.getX(i);
+            ys[i] = event.getY(i);
+        }
+        mTrace.add(GestureTrace.Step.touch(delay(event.getEventTime()), event.getActionMasked(),
+                event.getActionIndex(), ids, xs, ys));
+    }
+
+    void recordNestedStart(int type) {
+        mTrace.add(GestureTrace.Step.nestedStart(delay(SystemClock.uptimeMillis()), type));
+    }
+
+    void recordNestedPreScroll(int type, int dy) {
+        mTrace.add(GestureTrace.Step.nestedPreScroll(delay(SystemClock.uptimeMillis()), type, dy));
+    }
+
+    void recordNestedStop(int type) {
+        mTrace.add(GestureTrace.Step.nestedStop(delay(SystemClock.uptimeMillis()), type));
+    }
+
+    void recordNestedPreFling(float velocityY) {
+        mTrace.add(GestureTrace.Step.nestedPreFling(delay(SystemClock.uptimeMillis()), velocityY));
+    }
+}
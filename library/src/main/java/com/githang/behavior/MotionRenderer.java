@@ -0,0 +1,164 @@
+package com.githang.behavior;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.BitmapDrawable;
+import android.os.Build;
+import android.support.annotation.RequiresApi;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * 布局移动期间展开内容的绘制方式。
+ * 拖动和沉降时展开内容本身不变，只是整体移动，可以把它放到硬件层中或画成一张位图，每帧只需合成而不用重新绘制。
+ * 位图可能有几MB，停靠后从overlay中移除但保留下来，下次移动时尺寸不变就直接复用，不用每次开始拖动都重新分配；
+ * 关闭快照或behavior被移除时释放。
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-08
+ */
+class MotionRenderer {
+
+    @ScrollLayoutBehavior.MotionRenderMode
+    private int mMode = ScrollLayoutBehavior.MOTION_RENDER_NONE;
+
+    /**
+     * 当前生效的方式，未生效时为{@link ScrollLayoutBehavior#MOTION_RENDER_NONE}
+     */
+    private int mActiveMode = ScrollLayoutBehavior.MOTION_RENDER_NONE;
+
+    private WeakReference<View> mViewRef;
+    private WeakReference<ViewGroup> mParentRef;
+
+    private int mSavedLayerType;
+    private float mSavedAlpha;
+
+    private Bitmap mBitmap;
+    private BitmapDrawable mDrawable;
+
+    void setMode(@ScrollLayoutBehavior.MotionRenderMode int mode) {
+        if (mMode != mode) {
+            release();
+            mMode = mode;
+        }
+    }
+
+    @ScrollLayoutBehavior.MotionRenderMode
+    int getMode() {
+        return mMode;
+    }
+
+    boolean isActive() {
+        return mActiveMode != ScrollLayoutBehavior.MOTION_RENDER_NONE;
+    }
+
+    /**
+     * 开始移动时调用
+     *
+     * @param view      展开内容
+     * @param parent    布局，快照画在它的overlay上
+     * @param maxHeight 快照的最大高度，超出的部分在移动时不可见
+     */
+    void begin(View view, ViewGroup parent, int maxHeight) {
+        if (mMode == ScrollLayoutBehavior.MOTION_RENDER_NONE || isActive()
+                || view.getWidth() == 0 || view.getHeight() == 0) {
+            return;
+        }
+        if (mMode == ScrollLayoutBehavior.MOTION_RENDER_SNAPSHOT
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2
+                && view.getParent() == parent) {
+            beginSnapshot(view, parent, Math.min(view.getHeight(), maxHeight));
+        } else {
+            // 4.3以下没有ViewOverlay，退回到硬件层
+            beginLayer(view);
+        }
+    }
+
+    private void beginLayer(View view) {
+        mSavedLayerType = view.getLayerType();
+        if (mSavedLayerType != View.LAYER_TYPE_HARDWARE) {
+            view.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+            if (ViewCompat.isAttachedToWindow(view)) {
+                view.buildLayer();
+            }
+        }
+        mViewRef = new WeakReference<>(view);
+        mActiveMode = ScrollLayoutBehavior.MOTION_RENDER_LAYER;
+    }
+
+    @RequiresApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private void beginSnapshot(View view, ViewGroup parent, int height) {
+        final int width = view.getWidth();
+        if (mBitmap != null && mBitmap.getWidth() == width && mBitmap.getHeight() == height) {
+            mBitmap.eraseColor(Color.TRANSPARENT);
+        } else {
+            recycleBitmap();
+            mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            mDrawable = new BitmapDrawable(view.getResources(), mBitmap);
+        }
+        final Canvas canvas = new Canvas(mBitmap);
+        canvas.translate(-view.getScrollX(), -view.getScrollY());
+        view.draw(canvas);
+
+        mDrawable.setBounds(view.getLeft(), view.getTop(), view.getLeft() + width, view.getTop() + height);
+        parent.getOverlay().add(mDrawable);
+        // 透明度为0的View不会被绘制，也不会像切换可见性那样影响焦点和布局
+        mSavedAlpha = view.getAlpha();
+        view.setAlpha(0f);
+        mViewRef = new WeakReference<>(view);
+        mParentRef = new WeakReference<>(parent);
+        mActiveMode = ScrollLayoutBehavior.MOTION_RENDER_SNAPSHOT;
+    }
+
+    /**
+     * 回到正常绘制，快照的位图保留给下次移动使用
+     */
+    void end() {
+        final int activeMode = mActiveMode;
+        if (activeMode == ScrollLayoutBehavior.MOTION_RENDER_NONE) {
+            return;
+        }
+        mActiveMode = ScrollLayoutBehavior.MOTION_RENDER_NONE;
+        final View view = mViewRef.get();
+        mViewRef = null;
+        if (activeMode == ScrollLayoutBehavior.MOTION_RENDER_LAYER) {
+            if (view != null && mSavedLayerType != View.LAYER_TYPE_HARDWARE) {
+                view.setLayerType(mSavedLayerType, null);
+            }
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            endSnapshot(view);
+        }
+    }
+
+    @RequiresApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private void endSnapshot(View view) {
+        final ViewGroup parent = mParentRef.get();
+        mParentRef = null;
+        if (parent != null) {
+            parent.getOverlay().remove(mDrawable);
+        }
+        if (view != null) {
+            view.setAlpha(mSavedAlpha);
+        }
+    }
+
+    /**
+     * 回到正常绘制并释放快照的位图
+     */
+    void release() {
+        end();
+        recycleBitmap();
+    }
+
+    private void recycleBitmap() {
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+            mDrawable = null;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.githang.behavior;
+
+import android.view.Choreographer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 把位置和状态分发给多个{@link ScrollLayoutBehavior.ScrollLayoutObserver}。
+ * 观察者列表在增删时整体替换，分发时只遍历数组；位置和状态以int传递，合并分发时复用同一个回调对象，不会逐次分配。
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-07
+ */
+class ObserverDispatcher {
+
+    private static final Entry[] EMPTY = new Entry[0];
+
+    private Entry[] mEntries = EMPTY;
+
+    private int mPosition;
+
+    @ScrollLayoutBehavior.State
+    private int mState;
+
+    /**
+     * @param state    当前的状态，作为合并分发的起点
+     * @param position 当前的位置
+     */
+    void add(ScrollLayoutBehavior.ScrollLayoutObserver observer, int mode, Executor executor,
+             int state, int position) {
+        remove(observer);
+        mState = state;
+        mPosition = position;
+        final Entry entry;
+        if (mode == ScrollLayoutBehavior.DISPATCH_EXECUTOR) {
+            entry = new ExecutorEntry(observer, executor);
+        } else if (mode == ScrollLayoutBehavior.DISPATCH_FRAME) {
+            entry = new FrameEntry(observer);
+        } else {
+            entry = new Entry(observer);
+        }
+        entry.init(mState, mPosition);
+        final Entry[] entries = new Entry[mEntries.length + 1];
+        System.arraycopy(mEntries, 0, entries, 0, mEntries.length);
+        entries[mEntries.length] = entry;
+        mEntries = entries;
+    }
+
+    void remove(ScrollLayoutBehavior.ScrollLayoutObserver observer) {
+        for (int i = 0; i < mEntries.length; i++) {
+            if (mEntries[i].mObserver == observer) {
+                mEntries[i].cancel();
+                final Entry[] entries = new Entry[mEntries.length - 1];
+                System.arraycopy(mEntries, 0, entries, 0, i);
+                System.arraycopy(mEntries, i + 1, entries, i, entries.length - i);
+                mEntries = entries.length == 0 ? EMPTY : entries;
+                return;
+            }
+        }
+    }
+
+    void dispatchSlide(int position) {
+        mPosition = position;
+        final Entry[] entries = mEntries;
+        for (Entry entry : entries) {
+            entry.onSlide(mState, position);
+        }
+    }
+
+    void dispatchStateChanged(int oldState, int newState) {
+        mState = newState;
+        final Entry[] entries = mEntries;
+        for (Entry entry : entries) {
+            entry.onStateChanged(oldState, newState, mPosition);
+        }
+    }
+
+    /**
+     * 在调用线程同步分发
+     */
+    private static class Entry {
+        final ScrollLayoutBehavior.ScrollLayoutObserver mObserver;
+
+        Entry(ScrollLayoutBehavior.ScrollLayoutObserver observer) {
+            mObserver = observer;
+        }
+
+        void init(int state, int position) {
+        }
+
+        void onSlide(int state, int position) {
+            mObserver.onSlide(position);
+        }
+
+        void onStateChanged(int oldState, int newState, int position) {
+            //noinspection WrongConstant
+            mObserver.onStateChanged(oldState, newState);
+        }
+
+        void cancel() {
+        }
+    }
+
+    /**
+     * 每帧最多分发一次，只保留最新的位置和状态
+     */
+    private static class FrameEntry extends Entry implements Choreographer.FrameCallback {
+        private int mDeliveredState;
+        private int mDeliveredPosition;
+        private int mLatestState;
+        private int mLatestPosition;
+        private boolean mPosted;
+
+        FrameEntry(ScrollLayoutBehavior.ScrollLayoutObserver observer) {
+            super(observer);
+        }
+
+        @Override
+        void init(int state, int position) {
+            mDeliveredState = mLatestState = state;
+            mDeliveredPosition = mLatestPosition = position;
+        }
+
+        @Override
+        void onSlide(int state, int position) {
+            mLatestPosition = position;
+            post();
+        }
+
+        @Override
+        void onStateChanged(int oldState, int newState, int position) {
+            mLatestState = newState;
+            post();
+        }
+
+        private void post() {
+            if (!mPosted) {
+                mPosted = true;
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        }
+
+        @Override
+        void cancel() {
+            if (mPosted) {
+                mPosted = false;
+                Choreographer.getInstance().removeFrameCallback(this);
+            }
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mPosted = false;
+            if (mLatestState != mDeliveredState) {
+                final int oldState = mDeliveredState;
+                mDeliveredState = mLatestState;
+                //noinspection WrongConstant
+                mObserver.onStateChanged(oldState, mLatestState);
+            }
+            if (mLatestPosition != mDeliveredPosition) {
+                mDeliveredPosition = mLatestPosition;
+                mObserver.onSlide(mLatestPosition);
+            }
+        }
+    }
+
+    /**
+     * 在指定的Executor中分发，上一次分发还未执行时只更新最新的值，不重复提交
+     */
+    private static class ExecutorEntry extends Entry implements Runnable {
+        private final Executor mExecutor;
+
+        /**
+         * 高32位为状态，低32位为位置
+         */
+        private final AtomicLong mLatest = new AtomicLong();
+        private final AtomicBoolean mPending = new AtomicBoolean();
+
+        /**
+         * 移除后已经提交的任务可能仍会执行，执行时检查这个标记
+         */
+        private volatile boolean mCancelled;
+
+        private long mDelivered;
+
+        ExecutorEntry(ScrollLayoutBehavior.ScrollLayoutObserver observer, Executor executor) {
+            super(observer);
+            mExecutor = executor;
+        }
+
+        private static long pack(int state, int position) {
+            return ((long) state << 32) | (position & 0xffffffffL);
+        }
+
+        @Override
+        void init(int state, int position) {
+            mDelivered = pack(state, position);
+            mLatest.set(mDelivered);
+        }
+
+        @Override
+        void onSlide(int state, int position) {
+            mLatest.set(pack(state, position));
+            submit();
+        }
+
+        @Override
+        void onStateChanged(int oldState, int newState, int position) {
+            mLatest.set(pack(newState, position));
+            submit();
+        }
+
+        private void submit() {
+            if (mPending.compareAndSet(false, true)) {
+                mExecutor.execute(this);
+            }
+        }
+
+        @Override
+        void cancel() {
+            mCancelled = true;
+        }
+
+        @Override
+        public void run() {
+            mPending.set(false);
+            if (mCancelled) {
+                return;
+            }
+            synchronized (this) {
+                final long latest = mLatest.get();
+                final int state = (int) (latest >>> 32);
+                final int position = (int) latest;
+                final int deliveredState = (int) (mDelivered >>> 32);
+                final int deliveredPosition = (int) mDelivered;
+                mDelivered = latest;
+                if (state != deliveredState) {
+                    //noinspection WrongConstant
+                    mObserver.onStateChanged(deliveredState, state);
+                }
+                if (position != deliveredPosition) {
+                    mObserver.onSlide(position);
+                }
+            }
+        }
+    }
+}
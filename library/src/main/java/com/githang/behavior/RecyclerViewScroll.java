@@ -0,0 +1,80 @@
+package com.githang.behavior;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+/**
+ * RecyclerView的滚动位置处理。RecyclerView不支持scrollTo，getScrollY()也总是0，只能通过LayoutManager定位。
+ * 库只在编译时依赖RecyclerView，使用前要先用{@link #isRecyclerView(View)}判断。
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-09
+ */
+final class RecyclerViewScroll {
+
+    static final int NO_POSITION = RecyclerView.NO_POSITION;
+
+    private static final Class<?> RECYCLER_VIEW_CLASS = findRecyclerViewClass();
+
+    private RecyclerViewScroll() {
+    }
+
+    private static Class<?> findRecyclerViewClass() {
+        try {
+            return Class.forName("android.support.v7.widget.RecyclerView");
+        } catch (ClassNotFoundException e) {
+            // 应用没有依赖RecyclerView
+            return null;
+        }
+    }
+
+    static boolean isRecyclerView(View view) {
+        return RECYCLER_VIEW_CLASS != null && RECYCLER_VIEW_CLASS.isInstance(view);
+    }
+
+    /**
+     * 滚动到第一项，在RecyclerView下一次layout时生效
+     */
+    static void scrollToTop(View view) {
+        ((RecyclerView) view).scrollToPosition(0);
+    }
+
+    /**
+     * @return 第一个可见项在adapter中的位置，LayoutManager不是LinearLayoutManager或没有可见项时返回{@link #NO_POSITION}
+     */
+    static int getFirstVisiblePosition(View view) {
+        final RecyclerView.LayoutManager layoutManager = ((RecyclerView) view).getLayoutManager();
+        if (!(layoutManager instanceof LinearLayoutManager)) {
+            return NO_POSITION;
+        }
+        return ((LinearLayoutManager) layoutManager).findFirstVisibleItemPosition();
+    }
+
+    /**
+     * @return 第一个可见项的顶部相对列表顶部内边距的偏移
+     */
+    static int getFirstVisibleOffset(View view) {
+        final RecyclerView.LayoutManager layoutManager = ((RecyclerView) view).getLayoutManager();
+        if (!(layoutManager instanceof LinearLayoutManager)) {
+            return 0;
+        }
+        final LinearLayoutManager linearLayoutManager = (LinearLayoutManager) layoutManager;
+        final int position = linearLayoutManager.findFirstVisibleItemPosition();
+        final View first = position == NO_POSITION ? null : linearLayoutManager.findViewByPosition(position);
+        return first == null ? 0 : linearLayoutManager.getDecoratedTop(first) - linearLayoutManager.getPaddingTop();
+    }
+
+    /**
+     * 把position对应的项定位到偏移offset处，在RecyclerView下一次layout时生效
+     */
+    static void scrollToPosition(View view, int position, int offset) {
+        final RecyclerView recyclerView = (RecyclerView) view;
+        final RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (layoutManager instanceof LinearLayoutManager) {
+            ((LinearLayoutManager) layoutManager).scrollToPositionWithOffset(position, offset);
+        } else {
+            recyclerView.scrollToPosition(position);
+        }
+    }
+}
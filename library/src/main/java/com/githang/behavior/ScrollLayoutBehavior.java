@@ -2,18 +2,27 @@ package com.githang.behavior;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.SystemClock;
 import android.support.annotation.IntDef;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.design.widget.CoordinatorLayout;
-import android.support.v4.math.MathUtils;
+import android.support.v4.os.TraceCompat;
+import android.support.v4.view.AbsSavedState;
+import android.support.v4.view.AsyncLayoutInflater;
 import android.support.v4.view.ViewCompat;
 import android.support.v4.widget.ViewDragHelper;
 import android.util.AttributeSet;
+import android.util.TypedValue;
 import android.view.*;
+import android.view.animation.AnimationUtils;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.ref.WeakReference;
+import java.util.concurrent.Executor;
 
 /**
  * @author 黄浩杭 (msdx.android@qq.com)
@@ -27,42 +36,208 @@ public class ScrollLayoutBehavior<V extends ViewGroup> extends CoordinatorLayout
         public abstract void onSlide(@NonNull ViewGroup viewGroup, ScrollLayoutBehavior behavior, int position);
     }
 
+    /**
+     * 位置和状态的观察者，通过{@link #addScrollLayoutObserver(ScrollLayoutObserver, int)}等方法添加，可以添加多个
+     */
+    public abstract static class ScrollLayoutObserver {
+        public void onStateChanged(@State int oldState, @State int newState) {
+        }
+
+        public void onSlide(int position) {
+        }
+    }
+
+    public abstract static class GestureMetricsListener {
+        /**
+         * 一次手势结束（松手且布局已停靠）时回调
+         *
+         * @param metrics 该手势的性能数据，只在回调期间有效
+         */
+        public abstract void onGestureFinished(@NonNull ViewGroup viewGroup, @NonNull GestureMetrics metrics);
+    }
 
-    public static final int STATE_HIDDEN = 1;
+
+    public static final int STATE_HIDDEN = SheetEngine.STATE_HIDDEN;
     /**
      * 缩起状态（显示在底部）
      */
-    public static final int STATE_COLLAPSED = 2;
+    public static final int STATE_COLLAPSED = SheetEngine.STATE_COLLAPSED;
     /**
      * 半展开状态
      */
-    public static final int STATE_HALF_EXPANDED = 3;
+    public static final int STATE_HALF_EXPANDED = SheetEngine.STATE_HALF_EXPANDED;
     /**
      * 全展开状态
      */
-    public static final int STATE_FULL_EXPANDED = 4;
+    public static final int STATE_FULL_EXPANDED = SheetEngine.STATE_FULL_EXPANDED;
     /**
      * 拖动状态
      */
-    public static final int STATE_DRAGGING = 5;
+    public static final int STATE_DRAGGING = SheetEngine.STATE_DRAGGING;
 
     /**
      * 滑动松手后自然沉降的状态
      */
-    public static final int STATE_SETTLING = 6;
+    public static final int STATE_SETTLING = SheetEngine.STATE_SETTLING;
+
+    /**
+     * 停靠在behavior_anchors所声明的某个位置，见{@link #getAnchorIndex()}
+     */
+    public static final int STATE_ANCHORED = SheetEngine.STATE_ANCHORED;
 
-    @IntDef({STATE_HIDDEN, STATE_COLLAPSED, STATE_HALF_EXPANDED, STATE_FULL_EXPANDED, STATE_DRAGGING, STATE_SETTLING})
+    @IntDef({STATE_HIDDEN, STATE_COLLAPSED, STATE_HALF_EXPANDED, STATE_FULL_EXPANDED, STATE_DRAGGING, STATE_SETTLING,
+            STATE_ANCHORED})
     @Retention(RetentionPolicy.SOURCE)
     public @interface State {
     }
 
-    @State
-    private int mState = STATE_HIDDEN;
+    /**
+     * 收起时将展开内容设为GONE
+     */
+    public static final int HIDE_MODE_GONE = 0;
+    /**
+     * 收起时将展开内容设为INVISIBLE，切换时不会重新layout
+     */
+    public static final int HIDE_MODE_INVISIBLE = 1;
+    /**
+     * 收起时将展开内容的透明度设为0，切换时不会重新layout，但展开内容仍可接收触摸事件
+     */
+    public static final int HIDE_MODE_ALPHA = 2;
+
+    @IntDef({HIDE_MODE_GONE, HIDE_MODE_INVISIBLE, HIDE_MODE_ALPHA})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface HideMode {
+    }
+
+    /**
+     * 通过改变布局位置（offsetTopAndBottom）移动
+     */
+    public static final int POSITIONING_LAYOUT = 0;
+    /**
+     * 通过translationY移动，布局位置固定不变，拖动和沉降都不经过layout
+     */
+    public static final int POSITIONING_TRANSLATION = 1;
+
+    @IntDef({POSITIONING_LAYOUT, POSITIONING_TRANSLATION})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface PositioningMode {
+    }
+
+    /**
+     * 每次layout都把嵌套滑动子View滚动到顶部
+     */
+    public static final int SCROLL_RESET_LAYOUT = 0;
+    /**
+     * 只在进入{@link #STATE_COLLAPSED}时把嵌套滑动子View滚动到顶部，其他layout保留滚动位置
+     */
+    public static final int SCROLL_RESET_COLLAPSED = 1;
+    /**
+     * 从不重置嵌套滑动子View的滚动位置
+     */
+    public static final int SCROLL_RESET_NEVER = 2;
+
+    @IntDef({SCROLL_RESET_LAYOUT, SCROLL_RESET_COLLAPSED, SCROLL_RESET_NEVER})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface ScrollResetMode {
+    }
+
+    /**
+     * 在主线程同步分发每一次变化
+     */
+    public static final int DISPATCH_SYNC = 0;
+    /**
+     * 在主线程每帧最多分发一次，只分发最新的位置和状态，一帧内经过的中间状态（如SETTLING）不会分发
+     */
+    public static final int DISPATCH_FRAME = 1;
+    /**
+     * 在指定的Executor中分发，上一次还没执行时只保留最新的位置和状态。
+     * 只通过{@link #addScrollLayoutObserver(ScrollLayoutObserver, Executor)}使用
+     */
+    static final int DISPATCH_EXECUTOR = 2;
+
+    @IntDef({DISPATCH_SYNC, DISPATCH_FRAME})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface DispatchMode {
+    }
+
+    /**
+     * 移动时正常绘制展开内容
+     */
+    public static final int MOTION_RENDER_NONE = 0;
+    /**
+     * 拖动和沉降时把展开内容放到硬件层中，每帧只需合成
+     */
+    public static final int MOTION_RENDER_LAYER = 1;
+    /**
+     * 拖动和沉降开始时把展开内容画成一张位图，移动期间显示位图；Android 4.3以下使用硬件层
+     */
+    public static final int MOTION_RENDER_SNAPSHOT = 2;
+
+    @IntDef({MOTION_RENDER_NONE, MOTION_RENDER_LAYER, MOTION_RENDER_SNAPSHOT})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface MotionRenderMode {
+    }
+
+    /**
+     * 不处理被遮挡的部分
+     */
+    public static final int OCCLUSION_NONE = 0;
+    /**
+     * 把布局的裁剪区域限制在父布局内可见的部分
+     */
+    public static final int OCCLUSION_CLIP = 1;
+    /**
+     * 全展开时不绘制被布局完全盖住的兄弟View，要求布局的背景不透明。
+     * 这些View在全展开期间被设为{@link View#INVISIBLE}，应用读到的可见性会改变，辅助功能也会跳过它们；
+     * 离开全展开时恢复为{@link View#VISIBLE}，期间被应用改过可见性的不恢复
+     */
+    public static final int OCCLUSION_SIBLINGS = 1 << 1;
+
+    @IntDef(flag = true, value = {OCCLUSION_NONE, OCCLUSION_CLIP, OCCLUSION_SIBLINGS})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface OcclusionMode {
+    }
+
+    /**
+     * 默认的甩动减速度，单位为dp/秒²
+     */
+    private static final float DEFAULT_SNAP_DECELERATION = 2000;
+
+    /**
+     * 沉降弹簧的刚度，从收起到全展开约需500ms
+     */
+    private static final float SETTLE_STIFFNESS = 400;
+
+    /**
+     * 惯性结束时由最后一帧位移估算速度所用的帧率
+     */
+    private static final int NON_TOUCH_FRAMES_PER_SECOND = 60;
+
+    /**
+     * 最近使用过的嵌套滑动子View的缓存数量，对应ViewPager中已经加载的页面
+     */
+    private static final int SCROLLING_CHILD_CACHE_SIZE = 4;
+
+    /**
+     * 限制列表可见区域时，移动中每次放大父布局高度的几分之一
+     */
+    private static final int VIEWPORT_GROW_DIVISOR = 4;
+
+    private static final int EXPANDED_CHILD_UNKNOWN = 0;
+    private static final int EXPANDED_CHILD_SHOWN = 1;
+    private static final int EXPANDED_CHILD_HIDDEN = 2;
+
+    private final SheetEngine mEngine = new SheetEngine(null);
 
     /**
      * 收起时所显示的高度
      */
     private int mCollapsedHeight;
+
+    /**
+     * onMeasureChild中得到的收起高度，包括布局的上下内边距
+     */
+    private int mMeasuredCollapsedHeight;
     /**
      * 半展开时所显示的高度
      */
@@ -87,17 +262,123 @@ public class ScrollLayoutBehavior<V extends ViewGroup> extends CoordinatorLayout
      */
     private int mParentHeight;
 
+    /**
+     * 各状态的位置是否已按当前的布局计算过
+     */
+    private boolean mGeometryValid;
+
+    /**
+     * 上次计算各状态位置时所用的全展开顶部空间
+     */
+    private int mLayoutFullExpandedSpace;
+
     private WeakReference<V> mViewGroupRef;
 
     private WeakReference<View> mNestedScrollingChildRef;
 
+    /**
+     * 嵌套滑动子View的缓存是否失效，失效时才在layout时重新遍历查找
+     */
+    private boolean mScrollingChildDirty = true;
+
+    /**
+     * 嵌套滑动子View是否由{@link #setScrollingChild(View)}指定
+     */
+    private boolean mScrollingChildExplicit;
+
+    /**
+     * 最近开始过嵌套滑动的子View，按最近使用排序，[0]即当前的嵌套滑动子View
+     */
+    @SuppressWarnings("unchecked")
+    private final WeakReference<View>[] mRecentScrollingChildren = new WeakReference[SCROLLING_CHILD_CACHE_SIZE];
+
     private WeakReference<View> mCollapsedChildRef;
 
     private WeakReference<View> mExpandedChildRef;
 
+    /**
+     * 展开内容的布局，不为0时展开内容在需要时才在后台线程中加载
+     */
+    private int mExpandedLayoutId;
+
+    private WeakReference<View> mExpandedPlaceholderRef;
+
+    private boolean mExpandedContentInflating;
+
+    private boolean mExpandedContentReady;
+
+    @HideMode
+    private int mExpandedHideMode = HIDE_MODE_GONE;
+
+    /**
+     * 从收起位置上滑超过该距离才显示展开内容，回到收起位置才隐藏
+     */
+    private int mExpandedShowThreshold;
+
+    private int mExpandedChildVisibility = EXPANDED_CHILD_UNKNOWN;
+
+    /**
+     * 当前手势中因展开内容显示或隐藏而引起的重新布局次数
+     */
+    private int mGestureRelayoutCount;
+
     private ScrollLayoutCallback mCallback;
 
-    private VelocityTracker mVelocityTracker;
+    private final ObserverDispatcher mObservers = new ObserverDispatcher();
+
+    private final SlideBindingTable mSlideBindings = new SlideBindingTable(mEngine);
+
+    private final MotionRenderer mMotionRenderer = new MotionRenderer();
+
+    private final SheetOcclusion mOcclusion = new SheetOcclusion();
+
+    /**
+     * 是否把嵌套滑动子View的可见区域限制在父布局内
+     */
+    private boolean mFitScrollingChildToViewport;
+
+    private final ViewportPadding mViewportPadding = new ViewportPadding();
+
+    /**
+     * 是否有恢复的嵌套滑动子View滚动位置等待下一次layout时设置
+     */
+    private boolean mScrollRestorePending;
+
+    /**
+     * 恢复的RecyclerView第一个可见项的位置，其他View为{@link RecyclerViewScroll#NO_POSITION}
+     */
+    private int mPendingScrollPosition = RecyclerViewScroll.NO_POSITION;
+
+    /**
+     * 恢复的RecyclerView第一个可见项相对列表顶部内边距的偏移，其他View为scrollY
+     */
+    private int mPendingScrollOffset;
+
+    private ScrollLayoutGroup mGroup;
+
+    private GestureMetricsListener mMetricsListener;
+
+    private final GestureMetrics mGestureMetrics = new GestureMetrics();
+
+    private GestureRecorder mRecorder;
+
+    /**
+     * 是否正在统计一次手势
+     */
+    private boolean mGestureTracking;
+
+    /**
+     * 手指是否还在屏幕上
+     */
+    private boolean mGestureTouching;
+
+    private long mGestureDownTime;
+
+    private int mGestureStartTop;
+
+    private long mSettleStartTime;
+
+    private final TouchPipeline mTouchPipeline = new TouchPipeline();
 
     int mActivePointerId;
 
@@ -111,23 +392,56 @@ public class ScrollLayoutBehavior<V extends ViewGroup> extends CoordinatorLayout
 
     private ViewDragHelper mViewDragHelper;
 
-    private int mLastNestedScrollDy;
+    @PositioningMode
+    private int mPositioningMode = POSITIONING_LAYOUT;
+
+    @ScrollResetMode
+    private int mScrollResetMode = SCROLL_RESET_LAYOUT;
+
+    private final SettleDriver mSettleDriver = new SettleDriver();
+
+    private final FakeDrag mFakeDrag = new FakeDrag();
+
+    /**
+     * 按下时打断了正在进行的沉降，松手时如果没有拖动需要继续吸附
+     */
+    private boolean mSettleInterrupted;
 
     private boolean mNestedScrolled = false;
 
+    /**
+     * 内部列表正在以非触摸方式（惯性滑动）进行嵌套滑动
+     */
+    private boolean mNonTouchScrolling;
+
+    /**
+     * 惯性滑动最近一帧的dy，用于在惯性结束时估算吸附方向
+     */
+    private int mLastNonTouchDy;
+
     private int mBelowToId;
     private WeakReference<View> mBelowToViewRef;
 
+    /**
+     * behavior_belowTo指定的View是否已经移到最上层，每个View只需要移动一次
+     */
+    private boolean mBelowToInFront;
+
     private final ViewDragHelper.Callback mDragCallback = new ViewDragHelper.Callback() {
         @Override
         public boolean tryCaptureView(View child, int pointerId) {
-            if (mState == STATE_DRAGGING) {
+            if (mEngine.getState() == STATE_DRAGGING && mViewDragHelper.getCapturedView() != child) {
+                // 正在由嵌套滑动拖动；已经捕获时允许换另一根手指继续拖动
                 return false;
             }
             if (mTouchingScrollingChild) {
                 return false;
             }
-            if (mState == STATE_FULL_EXPANDED && mActivePointerId == pointerId) {
+            if (mPositioningMode == POSITIONING_TRANSLATION && mInitialY < getSheetTop(child)) {
+                // ViewDragHelper按布局位置查找子View，平移后的空白区域不能捕获
+                return false;
+            }
+            if (mEngine.getState() == STATE_FULL_EXPANDED && mActivePointerId == pointerId) {
                 View scroll = mNestedScrollingChildRef.get();
                 if (scroll != null && scroll.canScrollVertically(-1)) {
                     return false;
@@ -138,67 +452,49 @@ public class ScrollLayoutBehavior<V extends ViewGroup> extends CoordinatorLayout
 
         @Override
         public void onViewPositionChanged(View changedView, int left, int top, int dx, int dy) {
-            dispatchOnSlide(top);
+            if (mPositioningMode == POSITIONING_LAYOUT) {
+                dispatchOnSlide(top);
+            }
+        }
+
+        @Override
+        public void onViewCaptured(View capturedChild, int activePointerId) {
+            mTouchPipeline.setTrackedPointer(activePointerId);
         }
 
         @Override
         public void onViewDragStateChanged(int state) {
             if (state == ViewDragHelper.STATE_DRAGGING) {
+                if (mEngine.getState() == STATE_COLLAPSED) {
+                    // 从收起状态只能往上拖，提前准备展开内容
+                    prepareExpandedContent();
+                }
                 setStateInternal(STATE_DRAGGING);
             }
         }
 
         @Override
         public void onViewReleased(View releasedChild, float xvel, float yvel) {
-            int top;
-            @State int targetState;
-            int currentTop = releasedChild.getTop();
-            if (yvel < 0) { // 上滑
-                if (currentTop < mHalfExpandedSpace) { // 半展开上面
-                    top = mFullExpandedSpace;
-                    targetState = STATE_FULL_EXPANDED;
-                } else {
-                    top = mHalfExpandedSpace;
-                    targetState = STATE_HALF_EXPANDED;
-                }
-            } else if (yvel == 0.f) {
-                final int fullExpandedDistance = Math.abs(currentTop - mFullExpandedSpace);
-                final int halfExpandedDistance = Math.abs(currentTop - mHalfExpandedSpace);
-                if (fullExpandedDistance <= halfExpandedDistance) {
-                    top = mFullExpandedSpace;
-                    targetState = STATE_FULL_EXPANDED;
-                } else {
-                    final int collapsedDistance = Math.abs(currentTop - mCollapsedSpace);
-                    if (halfExpandedDistance <= collapsedDistance) {
-                        top = mHalfExpandedSpace;
-                        targetState = STATE_HALF_EXPANDED;
-                    } else {
-                        top = mCollapsedSpace;
-                        targetState = STATE_COLLAPSED;
-                    }
-                }
-            } else { // 下滑
-                if (currentTop < mHalfExpandedSpace) { // 半展开之上
-                    top = mHalfExpandedSpace;
-                    targetState = STATE_HALF_EXPANDED;
-                } else {
-                    top = mCollapsedSpace;
-                    targetState = STATE_COLLAPSED;
-                }
-            }
-
-            if (mViewDragHelper.settleCapturedViewAt(releasedChild.getLeft(), top)) {
-                setStateInternal(STATE_SETTLING);
-                ViewCompat.postOnAnimation(releasedChild,
-                        new SettleRunnable(releasedChild, targetState));
-            } else {
-                setStateInternal(targetState);
-            }
+            // ViewDragHelper只记录了捕获之后的事件，使用完整的速度数据
+            settleToSnapTarget(releasedChild, mTouchPipeline.getYVelocity(mMaxVelocity));
         }
 
         @Override
         public int clampViewPositionVertical(View child, int top, int dy) {
-            return MathUtils.clamp(top, mFullExpandedSpace, mCollapsedSpace);
+            final int prediction = mTouchPipeline.consumePredictionDelta();
+            dy += prediction;
+            top += prediction;
+            if (mPositioningMode == POSITIONING_TRANSLATION) {
+                // 位移只作用在translationY上，布局位置保持不变
+                final int sheetTop = getSheetTop(child);
+                final int newTop = mEngine.clamp(sheetTop + dy);
+                if (newTop != sheetTop) {
+                    moveSheetTo(child, newTop);
+                    dispatchOnSlide(newTop);
+                }
+                return child.getTop();
+            }
+            return mEngine.clamp(top);
         }
 
         @Override
@@ -208,7 +504,7 @@ public class ScrollLayoutBehavior<V extends ViewGroup> extends CoordinatorLayout
 
         @Override
         public int getViewVerticalDragRange(View child) {
-            return mCollapsedSpace - mFullExpandedSpace;
+            return mEngine.getDragRange();
         }
     };
 
@@ -224,106 +520,500 @@ public class ScrollLayoutBehavior<V extends ViewGroup> extends CoordinatorLayout
         mFullExpandedSpace = ta.getDimensionPixelSize(
                 R.styleable.ScrollLayoutBehavior_Layout_behavior_fullExpandedSpace, 0);
         mBelowToId = ta.getResourceId(R.styleable.ScrollLayoutBehavior_Layout_behavior_belowTo, View.NO_ID);
+        //noinspection WrongConstant
+        mExpandedHideMode = ta.getInt(R.styleable.ScrollLayoutBehavior_Layout_behavior_expandedHideMode,
+                HIDE_MODE_GONE);
+        mExpandedShowThreshold = ta.getDimensionPixelSize(
+                R.styleable.ScrollLayoutBehavior_Layout_behavior_expandedShowThreshold, 0);
+        mExpandedLayoutId = ta.getResourceId(R.styleable.ScrollLayoutBehavior_Layout_behavior_expandedLayout, 0);
+        //noinspection WrongConstant
+        mPositioningMode = ta.getInt(R.styleable.ScrollLayoutBehavior_Layout_behavior_positioningMode,
+                POSITIONING_LAYOUT);
+        //noinspection WrongConstant
+        mScrollResetMode = ta.getInt(R.styleable.ScrollLayoutBehavior_Layout_behavior_scrollResetMode,
+                SCROLL_RESET_LAYOUT);
+        final int initialState = ta.getInt(R.styleable.ScrollLayoutBehavior_Layout_behavior_initialState,
+                STATE_HIDDEN);
+        mEngine.setState(initialState, SheetEngine.NO_ANCHOR);
+        //noinspection WrongConstant
+        mMotionRenderer.setMode(ta.getInt(R.styleable.ScrollLayoutBehavior_Layout_behavior_motionRenderMode,
+                MOTION_RENDER_NONE));
+        mFitScrollingChildToViewport = ta.getBoolean(
+                R.styleable.ScrollLayoutBehavior_Layout_behavior_fitScrollingChildToViewport, false);
+        mOcclusion.setMode(ta.getInt(R.styleable.ScrollLayoutBehavior_Layout_behavior_occlusionMode,
+                OCCLUSION_NONE));
+        final int anchorsId = ta.getResourceId(R.styleable.ScrollLayoutBehavior_Layout_behavior_anchors, 0);
+        if (anchorsId != 0) {
+            readAnchors(context, anchorsId);
+        }
         ta.recycle();
 
+        ensureConfiguration(context);
+    }
+
+    private void readAnchors(Context context, int anchorsId) {
+        final TypedArray anchors = context.getResources().obtainTypedArray(anchorsId);
+        final int count = anchors.length();
+        final float[] anchorValues = new float[count];
+        final boolean[] anchorFractions = new boolean[count];
+        final TypedValue value = new TypedValue();
+        for (int i = 0; i < count; i++) {
+            anchors.getValue(i, value);
+            if (value.type == TypedValue.TYPE_FRACTION) {
+                anchorValues[i] = value.getFraction(1, 1);
+                anchorFractions[i] = true;
+            } else if (value.type == TypedValue.TYPE_DIMENSION) {
+                anchorValues[i] = anchors.getDimension(i, 0);
+            } else {
+                anchors.recycle();
+                throw new IllegalArgumentException("behavior_anchors only supports dimensions and fractions, "
+                        + "but item " + i + " is " + value);
+            }
+        }
+        anchors.recycle();
+        mEngine.setExtraAnchors(anchorValues, anchorFractions);
+    }
+
+    private void ensureConfiguration(Context context) {
+        if (mMaxVelocity != 0) {
+            return;
+        }
         ViewConfiguration configuration = ViewConfiguration.get(context);
         mMaxVelocity = configuration.getScaledMaximumFlingVelocity();
+        if (mEngine.getSnapPolicy() == null) {
+            final float density = context.getResources().getDisplayMetrics().density;
+            mEngine.setSnapPolicy(new FlingSnapPolicy(DEFAULT_SNAP_DECELERATION * density,
+                    configuration.getScaledMinimumFlingVelocity()));
+        }
+    }
+
+    @Override
+    public boolean onMeasureChild(CoordinatorLayout parent, V child, int parentWidthMeasureSpec, int widthUsed,
+                                  int parentHeightMeasureSpec, int heightUsed) {
+        if (mExpandedLayoutId != 0 && !mExpandedContentReady && mExpandedPlaceholderRef == null) {
+            if (child.getChildCount() >= 2) {
+                // 布局中已经声明了展开内容
+                mExpandedContentReady = true;
+            } else {
+                final View placeholder = new View(child.getContext());
+                child.addView(placeholder, 1, new ViewGroup.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+                mExpandedPlaceholderRef = new WeakReference<>(placeholder);
+                if (mEngine.isExpanded()) {
+                    inflateExpandedContent(child);
+                }
+            }
+        }
+        updateExpandedChildRef(child);
+        final int state = mEngine.getState();
+        if (state != STATE_DRAGGING && state != STATE_SETTLING) {
+            // 在measure之前切换展开内容的显示，layout之后不会再有一次layout请求
+            setExpandedChildShown(isExpanded());
+        }
+        parent.onMeasureChild(child, parentWidthMeasureSpec, widthUsed, parentHeightMeasureSpec, heightUsed);
+        if (child.getChildCount() > 0) {
+            // 在measure时就确定收起高度，第一次layout即可放到初始状态的位置
+            mMeasuredCollapsedHeight = child.getChildAt(0).getMeasuredHeight()
+                    + child.getPaddingTop() + child.getPaddingBottom();
+        }
+        return true;
+    }
+
+    /**
+     * 需要展开时调用，开始在后台加载展开内容
+     */
+    private void prepareExpandedContent() {
+        final V child = mViewGroupRef == null ? null : mViewGroupRef.get();
+        if (child != null) {
+            inflateExpandedContent(child);
+        }
+    }
+
+    private void inflateExpandedContent(final ViewGroup sheet) {
+        if (mExpandedLayoutId == 0 || mExpandedContentReady || mExpandedContentInflating
+                || mExpandedPlaceholderRef == null) {
+            return;
+        }
+        mExpandedContentInflating = true;
+        new AsyncLayoutInflater(sheet.getContext()).inflate(mExpandedLayoutId, sheet,
+                new AsyncLayoutInflater.OnInflateFinishedListener() {
+                    @Override
+                    public void onInflateFinished(@NonNull View view, int resid, @Nullable ViewGroup parent) {
+                        mExpandedContentInflating = false;
+                        mExpandedContentReady = true;
+                        final View placeholder = mExpandedPlaceholderRef.get();
+                        mExpandedPlaceholderRef = null;
+                        final int index = placeholder == null ? -1 : sheet.indexOfChild(placeholder);
+                        if (index < 0) {
+                            sheet.addView(view);
+                            return;
+                        }
+                        // 保持占位View当前的显示状态，避免加入时多一次measure
+                        view.setVisibility(placeholder.getVisibility());
+                        view.setAlpha(placeholder.getAlpha());
+                        sheet.removeViewAt(index);
+                        sheet.addView(view, index);
+                    }
+                });
     }
 
     @Override
     public boolean onLayoutChild(CoordinatorLayout parent, V child, int layoutDirection) {
+        TraceCompat.beginSection("ScrollLayoutBehavior#onLayoutChild");
+        try {
+            if (mGestureTracking) {
+                mGestureMetrics.mLayoutPasses++;
+            }
+            return layoutChild(parent, child, layoutDirection);
+        } finally {
+            TraceCompat.endSection();
+        }
+    }
+
+    private boolean layoutChild(CoordinatorLayout parent, V child, int layoutDirection) {
         if (ViewCompat.getFitsSystemWindows(parent) && !ViewCompat.getFitsSystemWindows(child)) {
             ViewCompat.setFitsSystemWindows(child, true);
         }
-        int savedTop = child.getTop();
+        int savedTop = getSheetTop(child);
+        if (mScrollRestorePending) {
+            // 恢复状态后的第一次layout，RecyclerView要在layout之前定位
+            resolveScrollingChild(child);
+            restoreRecyclerViewScroll();
+        } else {
+            final View lastScroll = mNestedScrollingChildRef == null ? null : mNestedScrollingChildRef.get();
+            if (mScrollResetMode == SCROLL_RESET_LAYOUT && lastScroll != null
+                    && RecyclerViewScroll.isRecyclerView(lastScroll)) {
+                // RecyclerView在layout时才定位，要在这次layout之前重置
+                resetScrollingChild();
+            }
+        }
         parent.onLayoutChild(child, layoutDirection);
 
-        mCollapsedChildRef = new WeakReference<>(child.getChildAt(0));
-        mExpandedChildRef = new WeakReference<>(child.getChildAt(1));
-
-        if (mState == STATE_COLLAPSED ||
-                (mState == STATE_DRAGGING && savedTop == getCollapsedSpace())) {
-            mExpandedChildRef.get().setVisibility(View.GONE);
-        } else {
-            mExpandedChildRef.get().setVisibility(View.VISIBLE);
+        if (mViewGroupRef == null || mViewGroupRef.get() != child) {
+            // 换了布局，原来缓存的嵌套滑动子View可能已不在其中
+            mScrollingChildDirty = true;
         }
+        mCollapsedChildRef = updateRef(mCollapsedChildRef, child.getChildAt(0));
+        updateExpandedChildRef(child);
 
-        mParentHeight = parent.getHeight();
         if (mBelowToId != View.NO_ID) {
-            if (mBelowToViewRef == null || mBelowToViewRef.get() == null) {
-                final View anchorView = parent.findViewById(mBelowToId);
-                anchorView.bringToFront();
+            View anchorView = mBelowToViewRef == null ? null : mBelowToViewRef.get();
+            if (anchorView == null) {
+                anchorView = parent.findViewById(mBelowToId);
                 mBelowToViewRef = new WeakReference<>(anchorView);
+                mBelowToInFront = false;
+            }
+            if (!mBelowToInFront) {
+                anchorView.bringToFront();
+                mBelowToInFront = true;
             }
-            mFullExpandedSpace = mBelowToViewRef.get().getBottom();
+            mFullExpandedSpace = anchorView.getBottom();
         }
 
-        mFullExpandedHeight = mParentHeight - mFullExpandedSpace;
-        mHalfExpandedHeight = mParentHeight - mHalfExpandedSpace;
+        final int parentHeight = parent.getHeight();
+        final int collapsedHeight = mMeasuredCollapsedHeight;
+        // 父布局、锚点及收起内容的高度都没变时，各状态的位置不需要重新计算
+        if (!mGeometryValid || parentHeight != mParentHeight
+                || mFullExpandedSpace != mLayoutFullExpandedSpace
+                || collapsedHeight != mCollapsedHeight) {
+            mParentHeight = parentHeight;
+            mLayoutFullExpandedSpace = mFullExpandedSpace;
+            mFullExpandedHeight = mParentHeight - mFullExpandedSpace;
+            mHalfExpandedHeight = mParentHeight - mHalfExpandedSpace;
+            mCollapsedHeight = collapsedHeight;
+            mCollapsedSpace = mParentHeight - mCollapsedHeight;
+            mEngine.setGeometry(mParentHeight, mFullExpandedSpace, mHalfExpandedSpace, mCollapsedSpace);
+            mSlideBindings.setStateTops(mParentHeight, mCollapsedSpace, mHalfExpandedSpace, mFullExpandedSpace);
+            mGeometryValid = true;
+        }
 
-        final int padding = child.getPaddingTop() + child.getPaddingBottom();
-        mCollapsedHeight = mCollapsedChildRef.get().getHeight() + padding;
-        mCollapsedSpace = mParentHeight - mCollapsedHeight;
+        final int state = mEngine.getState();
+        if (state == STATE_DRAGGING || state == STATE_SETTLING) {
+            updateExpandedChildVisibility(savedTop);
+        } else {
+            setExpandedChildShown(isExpanded());
+        }
 
-        if (mState == STATE_FULL_EXPANDED) {
-            ViewCompat.offsetTopAndBottom(child, mFullExpandedSpace);
-        } else if (mState == STATE_HALF_EXPANDED) {
-            ViewCompat.offsetTopAndBottom(child, mHalfExpandedSpace);
-        } else if (mState == STATE_COLLAPSED) {
-            ViewCompat.offsetTopAndBottom(child, mCollapsedSpace);
-        } else if (mState == STATE_DRAGGING || mState == STATE_SETTLING) {
+        if (state == STATE_FULL_EXPANDED) {
+            moveSheetTo(child, mFullExpandedSpace);
+        } else if (state == STATE_HALF_EXPANDED) {
+            moveSheetTo(child, mHalfExpandedSpace);
+        } else if (state == STATE_COLLAPSED) {
+            moveSheetTo(child, mCollapsedSpace);
+        } else if (state == STATE_ANCHORED) {
+            moveSheetTo(child, mEngine.getRestingTop(savedTop));
+        } else if (state == STATE_DRAGGING || state == STATE_SETTLING) {
             // 子View显示或隐藏时会回调该方法重新进行layout，所以需要恢复到之前的位移量
-            ViewCompat.offsetTopAndBottom(child, savedTop - child.getTop());
-        } else if (mState == STATE_HIDDEN) {
-            ViewCompat.offsetTopAndBottom(child, mParentHeight - child.getTop());
+            moveSheetTo(child, savedTop);
+        } else if (state == STATE_HIDDEN) {
+            moveSheetTo(child, mParentHeight);
         }
 
-        mViewGroupRef = new WeakReference<>(child);
-        mNestedScrollingChildRef = new WeakReference<>(findScrollingChild(child));
+        mViewGroupRef = updateRef(mViewGroupRef, child);
+        mSlideBindings.apply(getSheetTop(child));
+        mOcclusion.updateClip(child, mParentHeight - getSheetTop(child));
+        mOcclusion.updateSiblings(child, state == STATE_FULL_EXPANDED);
+        resolveScrollingChild(child);
+        updateViewportPadding(child, getSheetTop(child), state != STATE_DRAGGING && state != STATE_SETTLING, true);
 
         if (mViewDragHelper == null) {
             mViewDragHelper = ViewDragHelper.create(parent, mDragCallback);
         }
-        if (mNestedScrollingChildRef.get() != null) {
-            mNestedScrollingChildRef.get().scrollTo(0, 0);
+        ensureConfiguration(parent.getContext());
+        final View scroll = mNestedScrollingChildRef == null ? null : mNestedScrollingChildRef.get();
+        if (mScrollRestorePending) {
+            // 其他View按内容的高度限制滚动范围，要在layout之后设置
+            mScrollRestorePending = false;
+            if (scroll != null && !RecyclerViewScroll.isRecyclerView(scroll)
+                    && mPendingScrollPosition == RecyclerViewScroll.NO_POSITION) {
+                scroll.scrollTo(0, mPendingScrollOffset);
+            }
+        } else if (mScrollResetMode == SCROLL_RESET_LAYOUT && scroll != null
+                && !RecyclerViewScroll.isRecyclerView(scroll)) {
+            resetScrollingChild();
         }
         return true;
     }
 
-    private View findScrollingChild(View view) {
-        if (ViewCompat.isNestedScrollingEnabled(view)) {
-            return view;
+    private void restoreRecyclerViewScroll() {
+        final View scroll = mNestedScrollingChildRef == null ? null : mNestedScrollingChildRef.get();
+        if (scroll == null || !RecyclerViewScroll.isRecyclerView(scroll)) {
+            return;
         }
-        if (view instanceof ViewGroup) {
-            ViewGroup group = (ViewGroup) view;
-            for (int i = 0, count = group.getChildCount(); i < count; i++) {
-                View scrollingChild = findScrollingChild(group.getChildAt(i));
-                if (scrollingChild != null) {
-                    return scrollingChild;
-                }
-            }
+        mScrollRestorePending = false;
+        if (mPendingScrollPosition != RecyclerViewScroll.NO_POSITION) {
+            RecyclerViewScroll.scrollToPosition(scroll, mPendingScrollPosition, mPendingScrollOffset);
         }
-        return null;
     }
 
-    @Override
-    public boolean onInterceptTouchEvent(CoordinatorLayout parent, V child, MotionEvent event) {
-        if (!child.isShown()) {
-            mIgnoreEvents = true;
-            return false;
+    /**
+     * 换了展开内容时更新引用，原来缓存的嵌套滑动子View可能已不在其中
+     */
+    private void updateExpandedChildRef(V child) {
+        final View expandedChild = child.getChildAt(1);
+        if (mExpandedChildRef == null || mExpandedChildRef.get() != expandedChild) {
+            mExpandedChildRef = new WeakReference<>(expandedChild);
+            mExpandedChildVisibility = EXPANDED_CHILD_UNKNOWN;
+            mScrollingChildDirty = true;
         }
+    }
 
-        int action = event.getActionMasked();
+    private static <T> WeakReference<T> updateRef(WeakReference<T> ref, T value) {
+        return ref != null && ref.get() == value ? ref : new WeakReference<>(value);
+    }
+
+    private void resolveScrollingChild(V child) {
+        final View cached = mNestedScrollingChildRef == null ? null : mNestedScrollingChildRef.get();
+        if (mScrollingChildExplicit) {
+            if (cached != null && isDescendantOrSelf(child, cached)) {
+                return;
+            }
+            // 指定的View已被移除，回到自动查找
+            mScrollingChildExplicit = false;
+            mScrollingChildDirty = true;
+        }
+        if (!mScrollingChildDirty) {
+            if (cached == null) {
+                return;
+            }
+            if (ViewCompat.isNestedScrollingEnabled(cached) && isDescendantOrSelf(child, cached)) {
+                return;
+            }
+        }
+        mScrollingChildDirty = false;
+        final View found = findScrollingChild(child);
+        if (found != null) {
+            activateScrollingChild(found);
+        } else {
+            mNestedScrollingChildRef = new WeakReference<>(null);
+        }
+    }
+
+    /**
+     * 把view设为当前的嵌套滑动子View并移到缓存最前面，已缓存的View不会再分配引用
+     */
+    private void activateScrollingChild(View view) {
+        if (mNestedScrollingChildRef != null && mNestedScrollingChildRef.get() == view) {
+            return;
+        }
+        int index = SCROLLING_CHILD_CACHE_SIZE - 1;
+        for (int i = 0; i < SCROLLING_CHILD_CACHE_SIZE; i++) {
+            final WeakReference<View> ref = mRecentScrollingChildren[i];
+            if (ref == null || ref.get() == null || ref.get() == view) {
+                index = i;
+                break;
+            }
+        }
+        WeakReference<View> ref = mRecentScrollingChildren[index];
+        if (ref == null || ref.get() != view) {
+            ref = new WeakReference<>(view);
+        }
+        System.arraycopy(mRecentScrollingChildren, 0, mRecentScrollingChildren, 1, index);
+        mRecentScrollingChildren[0] = ref;
+        mNestedScrollingChildRef = ref;
+    }
+
+    /**
+     * 在缓存中查找按下位置所在的嵌套滑动子View，找到时设为当前的嵌套滑动子View
+     */
+    private View findCachedScrollingChildUnder(CoordinatorLayout parent, V child, int x, int y) {
+        if (mScrollingChildExplicit) {
+            final View scroll = mNestedScrollingChildRef.get();
+            return scroll != null && parent.isPointInChildBounds(scroll, x, y) ? scroll : null;
+        }
+        for (WeakReference<View> ref : mRecentScrollingChildren) {
+            final View view = ref == null ? null : ref.get();
+            if (view != null && view.isShown() && isDescendantOrSelf(child, view)
+                    && parent.isPointInChildBounds(view, x, y)) {
+                activateScrollingChild(view);
+                return view;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean layoutDependsOn(@NonNull CoordinatorLayout parent, @NonNull V child, @NonNull View dependency) {
+        if (mBelowToId == View.NO_ID || dependency.getId() != mBelowToId) {
+            return false;
+        }
+        if (mBelowToViewRef == null || mBelowToViewRef.get() != dependency) {
+            mBelowToViewRef = new WeakReference<>(dependency);
+            mBelowToInFront = false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean onDependentViewChanged(@NonNull CoordinatorLayout parent, @NonNull V child, @NonNull View dependency) {
+        if (!mGeometryValid || mBelowToViewRef == null || dependency != mBelowToViewRef.get()) {
+            return false;
+        }
+        final int fullExpandedSpace = dependency.getBottom();
+        if (fullExpandedSpace == mFullExpandedSpace) {
+            return false;
+        }
+        // 锚点移动（如可折叠的标题栏）时只更新全展开的位置，不重新layout
+        mFullExpandedSpace = fullExpandedSpace;
+        mLayoutFullExpandedSpace = fullExpandedSpace;
+        mFullExpandedHeight = mParentHeight - fullExpandedSpace;
+        mEngine.setGeometry(mParentHeight, mFullExpandedSpace, mHalfExpandedSpace, mCollapsedSpace);
+        mSlideBindings.setStateTops(mParentHeight, mCollapsedSpace, mHalfExpandedSpace, mFullExpandedSpace);
+
+        final int state = mEngine.getState();
+        final int top = getSheetTop(child);
+        if (mSettleDriver.isRunning()) {
+            if (mSettleDriver.mTargetState == STATE_FULL_EXPANDED) {
+                mSettleDriver.start(child, fullExpandedSpace, STATE_FULL_EXPANDED, SheetEngine.NO_ANCHOR, 0);
+            }
+            return false;
+        }
+        final int newTop;
+        if (state == STATE_FULL_EXPANDED) {
+            newTop = fullExpandedSpace;
+        } else if (state == STATE_DRAGGING || state == STATE_SETTLING) {
+            newTop = mEngine.clamp(top);
+        } else {
+            return false;
+        }
+        if (newTop == top) {
+            return false;
+        }
+        moveSheetTo(child, newTop);
+        dispatchOnSlide(newTop);
+        return true;
+    }
+
+    private void resetScrollingChild() {
+        final View scroll = mNestedScrollingChildRef == null ? null : mNestedScrollingChildRef.get();
+        if (scroll == null || !scroll.canScrollVertically(-1)) {
+            return;
+        }
+        if (RecyclerViewScroll.isRecyclerView(scroll)) {
+            RecyclerViewScroll.scrollToTop(scroll);
+        } else {
+            scroll.scrollTo(0, 0);
+        }
+    }
+
+    /**
+     * 按布局的位置调整嵌套滑动子View的底部内边距，使它只填充父布局内可见的部分
+     *
+     * @param resting  停靠时内边距与屏幕以外的高度一致，移动时只在需要时放大可见区域
+     * @param inLayout 是否在layout期间调用
+     */
+    private void updateViewportPadding(View sheet, int top, boolean resting, boolean inLayout) {
+        if (!mFitScrollingChildToViewport) {
+            return;
+        }
+        final View target = mNestedScrollingChildRef == null ? null : mNestedScrollingChildRef.get();
+        if (target == null || !isDescendantOrSelf(sheet, target)) {
+            mViewportPadding.release();
+            return;
+        }
+        int offset = 0;
+        for (View view = target; view != sheet; view = (View) view.getParent()) {
+            offset += view.getTop();
+        }
+        final int bottom = top + offset + target.getHeight();
+        mViewportPadding.update(target, bottom - mParentHeight, resting, mParentHeight / VIEWPORT_GROW_DIVISOR,
+                inLayout);
+    }
+
+    private static boolean isDescendantOrSelf(View ancestor, View view) {
+        if (view == ancestor) {
+            return true;
+        }
+        ViewParent parent = view.getParent();
+        while (parent instanceof View) {
+            if (parent == ancestor) {
+                return true;
+            }
+            parent = parent.getParent();
+        }
+        return false;
+    }
+
+    private View findScrollingChild(View view) {
+        if (ViewCompat.isNestedScrollingEnabled(view)) {
+            return view;
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0, count = group.getChildCount(); i < count; i++) {
+                View scrollingChild = findScrollingChild(group.getChildAt(i));
+                if (scrollingChild != null) {
+                    return scrollingChild;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(CoordinatorLayout parent, V child, MotionEvent event) {
+        if (!child.isShown()) {
+            mIgnoreEvents = true;
+            return false;
+        }
+        if (mGroup != null && !mGroup.isTouchOwner(this, event)) {
+            // 本次手势由组中的其他布局处理
+            clearTouchState(event);
+            return false;
+        }
+
+        int action = event.getActionMasked();
         if (action == MotionEvent.ACTION_DOWN) {
             reset();
+            onGestureStart(child, event);
         }
-        if (mVelocityTracker == null) {
-            mVelocityTracker = VelocityTracker.obtain();
+        if (mTouchPipeline.addMovement(event) && mRecorder != null) {
+            mRecorder.recordTouch(event);
         }
-        mVelocityTracker.addMovement(event);
         switch (action) {
             case MotionEvent.ACTION_UP:
             case MotionEvent.ACTION_CANCEL:
+                onGestureTouchUp(child);
                 mTouchingScrollingChild = false;
                 mActivePointerId = MotionEvent.INVALID_POINTER_ID;
                 if (mIgnoreEvents) {
@@ -335,8 +1025,8 @@ public class ScrollLayoutBehavior<V extends ViewGroup> extends CoordinatorLayout
                 int initialX = (int) event.getX();
                 mInitialY = (int) event.getY();
                 View scroll = mNestedScrollingChildRef == null
-                        ? null : mNestedScrollingChildRef.get();
-                if (scroll != null && parent.isPointInChildBounds(scroll, initialX, mInitialY)) {
+                        ? null : findCachedScrollingChildUnder(parent, child, initialX, mInitialY);
+                if (scroll != null) {
                     mActivePointerId = event.getPointerId(event.getActionIndex());
                     mTouchingScrollingChild = true;
                 }
@@ -349,7 +1039,7 @@ public class ScrollLayoutBehavior<V extends ViewGroup> extends CoordinatorLayout
         }
         View scroll = mNestedScrollingChildRef.get();
         return action == MotionEvent.ACTION_MOVE && scroll != null
-                && !mIgnoreEvents && mState != STATE_DRAGGING
+                && !mIgnoreEvents && mEngine.getState() != STATE_DRAGGING
                 && !parent.isPointInChildBounds(scroll, (int) event.getX(), (int) event.getY())
                 && Math.abs(mInitialY - event.getY()) > mViewDragHelper.getTouchSlop();
     }
@@ -359,9 +1049,13 @@ public class ScrollLayoutBehavior<V extends ViewGroup> extends CoordinatorLayout
         if (!child.isShown()) {
             return false;
         }
+        if (mGroup != null && !mGroup.isTouchOwner(this, event)) {
+            clearTouchState(event);
+            return false;
+        }
 
         int action = event.getActionMasked();
-        if (mState == STATE_DRAGGING && action == MotionEvent.ACTION_DOWN) {
+        if (mEngine.getState() == STATE_DRAGGING && action == MotionEvent.ACTION_DOWN) {
             return true;
         }
         if (mViewDragHelper == null) {
@@ -372,197 +1066,470 @@ public class ScrollLayoutBehavior<V extends ViewGroup> extends CoordinatorLayout
         if (action == MotionEvent.ACTION_DOWN) {
             reset();
         }
-        if (mVelocityTracker == null) {
-            mVelocityTracker = VelocityTracker.obtain();
+        if (mTouchPipeline.addMovement(event) && mRecorder != null) {
+            mRecorder.recordTouch(event);
         }
-        mVelocityTracker.addMovement(event);
         if (action == MotionEvent.ACTION_MOVE && !mIgnoreEvents) {
             if (Math.abs(mInitialY - event.getY()) > mViewDragHelper.getTouchSlop()) {
                 mViewDragHelper.captureChildView(child, event.getPointerId(event.getActionIndex()));
             }
+        } else if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            onGestureTouchUp(child);
         }
         return !mIgnoreEvents;
     }
 
     private void reset() {
         mActivePointerId = ViewDragHelper.INVALID_POINTER;
-        if (mVelocityTracker != null) {
-            mVelocityTracker.recycle();
-            mVelocityTracker = null;
+    }
+
+    /**
+     * 不处理本次手势时，在按下和手势结束时清除上一次手势留下的触摸状态
+     */
+    private void clearTouchState(MotionEvent event) {
+        final int action = event.getActionMasked();
+        if (action == MotionEvent.ACTION_DOWN || action == MotionEvent.ACTION_UP
+                || action == MotionEvent.ACTION_CANCEL) {
+            mTouchingScrollingChild = false;
+            mActivePointerId = MotionEvent.INVALID_POINTER_ID;
         }
     }
 
     @Override
-    public boolean onStartNestedScroll(@NonNull CoordinatorLayout coordinatorLayout, @NonNull V child, @NonNull View directTargetChild, @NonNull View target, int axes) {
-        mLastNestedScrollDy = 0;
-        mNestedScrolled = false;
-        return (axes & ViewCompat.SCROLL_AXIS_VERTICAL) != 0;
+    public void onDetachedFromLayoutParams() {
+        super.onDetachedFromLayoutParams();
+        mSettleDriver.cancel();
+        mFakeDrag.cancel();
+        mTouchPipeline.recycle();
+        mMotionRenderer.release();
+    }
+
+    @Override
+    public Parcelable onSaveInstanceState(CoordinatorLayout parent, V child) {
+        int state = mEngine.getState();
+        int anchorId = mEngine.getAnchorId();
+        if (state == STATE_SETTLING && mSettleDriver.isRunning()) {
+            state = mSettleDriver.mTargetState;
+            anchorId = mSettleDriver.mTargetAnchorId;
+        } else if ((state == STATE_DRAGGING || state == STATE_SETTLING) && mEngine.getAnchorCount() > 0) {
+            // 还没有layout时没有停靠位置，保存原来的状态
+            final int index = mEngine.findNearestAnchorIndex(getSheetTop(child));
+            state = mEngine.getAnchorState(index);
+            anchorId = mEngine.getAnchorId(index);
+        }
+        final View scroll = mNestedScrollingChildRef == null ? null : mNestedScrollingChildRef.get();
+        int scrollPosition = RecyclerViewScroll.NO_POSITION;
+        int scrollOffset = 0;
+        if (scroll != null && RecyclerViewScroll.isRecyclerView(scroll)) {
+            // RecyclerView的scrollY总是0，保存第一个可见项及其偏移
+            scrollPosition = RecyclerViewScroll.getFirstVisiblePosition(scroll);
+            scrollOffset = RecyclerViewScroll.getFirstVisibleOffset(scroll);
+        } else if (scroll != null) {
+            scrollOffset = scroll.getScrollY();
+        }
+        return new SavedState(super.onSaveInstanceState(parent, child), state, anchorId,
+                scrollPosition, scrollOffset);
     }
 
     @Override
-    public void onNestedPreScroll(@NonNull CoordinatorLayout coordinatorLayout, @NonNull V child, @NonNull View target, int dx, int dy, @NonNull int[] consumed) {
+    public void onRestoreInstanceState(CoordinatorLayout parent, V child, Parcelable state) {
+        final SavedState ss = (SavedState) state;
+        super.onRestoreInstanceState(parent, child, ss.getSuperState());
+        // 直接修改状态，在下一次layout时放到对应的位置，不经过沉降也不回调onSlide
+        mSettleDriver.cancel();
+        mFakeDrag.cancel();
+        mEngine.setState(ss.state, ss.anchorId);
+        // 不论滚动重置的方式，都在下一次layout时恢复
+        mScrollRestorePending = true;
+        mPendingScrollPosition = ss.scrollPosition;
+        mPendingScrollOffset = ss.scrollOffset;
+        if (mViewGroupRef != null) {
+            child.requestLayout();
+        }
+    }
+
+    @Override
+    public boolean onStartNestedScroll(@NonNull CoordinatorLayout coordinatorLayout, @NonNull V child,
+                                       @NonNull View directTargetChild, @NonNull View target,
+                                       int axes, int type) {
+        if ((axes & ViewCompat.SCROLL_AXIS_VERTICAL) == 0) {
+            return false;
+        }
+        if (mRecorder != null) {
+            mRecorder.recordNestedStart(type);
+        }
+        if (!mScrollingChildExplicit && isDescendantOrSelf(child, target)) {
+            // ViewPager等切换页面后，跟随实际开始嵌套滑动的子View
+            activateScrollingChild(target);
+        }
+        if (type == ViewCompat.TYPE_TOUCH) {
+            mNestedScrolled = false;
+            if (mNestedScrollingChildRef != null && target == mNestedScrollingChildRef.get()) {
+                mTouchingScrollingChild = true;
+            }
+        } else {
+            mNonTouchScrolling = true;
+            mLastNonTouchDy = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public void onNestedPreScroll(@NonNull CoordinatorLayout coordinatorLayout, @NonNull V child,
+                                  @NonNull View target, int dx, int dy, @NonNull int[] consumed,
+                                  int type) {
         View scrollingChild = mNestedScrollingChildRef.get();
         if (target != scrollingChild) {
             return;
         }
-        int currentTop = child.getTop();
-        int newTop = currentTop - dy;
-        if (dy > 0) { //上滑
-            if (newTop < mFullExpandedSpace) {
-                consumed[1] = currentTop - mFullExpandedSpace;
-                ViewCompat.offsetTopAndBottom(child, -consumed[1]);
-                setStateInternal(STATE_FULL_EXPANDED);
-            } else {
-                consumed[1] = dy;
-                ViewCompat.offsetTopAndBottom(child, -dy);
-                setStateInternal(STATE_DRAGGING);
+        if (mRecorder != null) {
+            mRecorder.recordNestedPreScroll(type, dy);
+        }
+        TraceCompat.beginSection("ScrollLayoutBehavior#onNestedPreScroll");
+        try {
+            if (dy > 0 && mEngine.getState() == STATE_COLLAPSED) {
+                prepareExpandedContent();
             }
-        } else if (dy < 0) { // 下滑
-            if (!target.canScrollVertically(-1)) {
-                if (newTop <= mCollapsedSpace) {
-                    consumed[1] = dy;
-                    ViewCompat.offsetTopAndBottom(child, -dy);
-                    setStateInternal(STATE_DRAGGING);
-                } else {
-                    consumed[1] = currentTop - mCollapsedSpace;
-                    ViewCompat.offsetTopAndBottom(child, -consumed[1]);
-                    setStateInternal(STATE_COLLAPSED);
+            int state = mEngine.preScroll(getSheetTop(child), dy, target.canScrollVertically(-1), consumed);
+            if (state != SheetEngine.NO_STATE) {
+                if (type != ViewCompat.TYPE_TOUCH && state == STATE_DRAGGING) {
+                    // 手指已经抬起，由列表的惯性带动
+                    state = STATE_SETTLING;
                 }
+                offsetSheet(child, -consumed[1]);
+                setStateInternal(state);
+            }
+            if (consumed[1] != dy) {
+                // 列表自己也在滚动，展开内容每帧都在变化
+                mMotionRenderer.end();
             }
+            dispatchOnSlide(getSheetTop(child));
+            if (type == ViewCompat.TYPE_TOUCH) {
+                mNestedScrolled = true;
+            } else if (dy != 0) {
+                mLastNonTouchDy = dy;
+            }
+        } finally {
+            TraceCompat.endSection();
         }
-        dispatchOnSlide(child.getTop());
-        mLastNestedScrollDy = dy;
-        mNestedScrolled = true;
     }
 
     private void dispatchOnSlide(int top) {
-        if (top == getCollapsedSpace()) {
-            mExpandedChildRef.get().setVisibility(View.GONE);
-        } else {
-            mExpandedChildRef.get().setVisibility(View.VISIBLE);
+        if (mGestureTracking) {
+            mGestureMetrics.mSlideDispatches++;
+            if (mGestureMetrics.mFirstMoveLatency < 0 && top != mGestureStartTop) {
+                mGestureMetrics.mFirstMoveLatency = SystemClock.uptimeMillis() - mGestureDownTime;
+            }
+            final int state = mEngine.getState();
+            if (state == STATE_DRAGGING || state == STATE_SETTLING) {
+                if (mMotionRenderer.isActive()) {
+                    mGestureMetrics.mLayerSlides++;
+                } else {
+                    mGestureMetrics.mRedrawSlides++;
+                }
+            }
         }
+        updateExpandedChildVisibility(top);
+        mSlideBindings.apply(top);
         ViewGroup scrollLayout = mViewGroupRef.get();
+        if (scrollLayout != null) {
+            mOcclusion.updateClip(scrollLayout, mParentHeight - top);
+            final int state = mEngine.getState();
+            updateViewportPadding(scrollLayout, top, state != STATE_DRAGGING && state != STATE_SETTLING, false);
+        }
         if (scrollLayout != null && mCallback != null) {
             mCallback.onSlide(scrollLayout, this, top);
         }
+        mObservers.dispatchSlide(top);
     }
 
-    @Override
-    public void onStopNestedScroll(@NonNull CoordinatorLayout coordinatorLayout, @NonNull V child, @NonNull View target) {
-        if (child.getTop() == mFullExpandedSpace) {
-            setStateInternal(STATE_FULL_EXPANDED);
-            return;
+    /**
+     * 根据位置切换展开内容的显示：上滑超过阈值才显示，回到收起位置才隐藏，中间不反复切换
+     */
+    private void updateExpandedChildVisibility(int top) {
+        if (top >= mCollapsedSpace) {
+            setExpandedChildShown(false);
+        } else if (top < mCollapsedSpace - mExpandedShowThreshold) {
+            setExpandedChildShown(true);
         }
+    }
 
-        if (mNestedScrollingChildRef == null || target != mNestedScrollingChildRef.get()
-                || !mNestedScrolled) {
+    private void setExpandedChildShown(boolean shown) {
+        final int visibility = shown ? EXPANDED_CHILD_SHOWN : EXPANDED_CHILD_HIDDEN;
+        if (mExpandedChildVisibility == visibility) {
             return;
         }
-
-        int top;
-        int targetState;
-        if (mLastNestedScrollDy > 0) { // 上滑
-            if (child.getTop() < mHalfExpandedSpace) { // 半展开之上
-                top = mFullExpandedSpace;
-                targetState = STATE_FULL_EXPANDED;
-            } else { //收起到半展开之间
-                top = mHalfExpandedSpace;
-                targetState = STATE_HALF_EXPANDED;
-            }
-        } else if (mLastNestedScrollDy == 0) {
-            final int currentTop = child.getTop();
-            final int fullExpandedDistance = Math.abs(currentTop - mFullExpandedSpace);
-            final int halfExpandedDistance = Math.abs(currentTop - mHalfExpandedSpace);
-            if (fullExpandedDistance <= halfExpandedDistance) {
-                top = mFullExpandedSpace;
-                targetState = STATE_FULL_EXPANDED;
-            } else {
-                final int collapsedDistance = Math.abs(currentTop - mCollapsedSpace);
-                if (halfExpandedDistance <= collapsedDistance) {
-                    top = mHalfExpandedSpace;
-                    targetState = STATE_HALF_EXPANDED;
-                } else {
-                    top = mCollapsedSpace;
-                    targetState = STATE_COLLAPSED;
+        final View expandedChild = mExpandedChildRef == null ? null : mExpandedChildRef.get();
+        if (expandedChild == null) {
+            return;
+        }
+        mMotionRenderer.end();
+        mExpandedChildVisibility = visibility;
+        if (mGestureTracking) {
+            mGestureMetrics.mVisibilityToggles++;
+        }
+        if (mExpandedHideMode == HIDE_MODE_ALPHA) {
+            expandedChild.setVisibility(View.VISIBLE);
+            expandedChild.setAlpha(shown ? 1f : 0f);
+        } else if (mExpandedHideMode == HIDE_MODE_INVISIBLE) {
+            expandedChild.setVisibility(shown ? View.VISIBLE : View.INVISIBLE);
+        } else {
+            final int oldVisibility = expandedChild.getVisibility();
+            final int newVisibility = shown ? View.VISIBLE : View.GONE;
+            if (oldVisibility != newVisibility) {
+                expandedChild.setVisibility(newVisibility);
+                if (oldVisibility == View.GONE || newVisibility == View.GONE) {
+                    // 与GONE之间切换会重新measure和layout整个布局
+                    mGestureRelayoutCount++;
                 }
             }
-        } else { // 下滑
-            if (child.getTop() < mHalfExpandedSpace) { // 半展开之上
-                top = mHalfExpandedSpace;
-                targetState = STATE_HALF_EXPANDED;
-            } else {
-                top = mCollapsedSpace;
-                targetState = STATE_COLLAPSED;
+        }
+        if (shown) {
+            updateMotionRender();
+        }
+    }
+
+    /**
+     * 移动时按设置的方式绘制展开内容，停靠后回到正常绘制
+     */
+    private void updateMotionRender() {
+        final int state = mEngine.getState();
+        if (state != STATE_DRAGGING && state != STATE_SETTLING) {
+            mMotionRenderer.end();
+            return;
+        }
+        final View expandedChild = mExpandedChildRef == null ? null : mExpandedChildRef.get();
+        final ViewGroup scrollLayout = mViewGroupRef == null ? null : mViewGroupRef.get();
+        if (expandedChild != null && scrollLayout != null
+                && mExpandedChildVisibility == EXPANDED_CHILD_SHOWN) {
+            mMotionRenderer.begin(expandedChild, scrollLayout, mParentHeight);
+        }
+    }
+
+    /**
+     * 新手势开始时调用，重置按手势统计的数据
+     */
+    private void onGestureStart(V child, MotionEvent down) {
+        if (mGestureTracking) {
+            // 上一次手势的沉降被打断
+            finishGesture();
+        }
+        mGestureRelayoutCount = 0;
+        mGestureTouching = true;
+        mSettleInterrupted = mSettleDriver.isRunning();
+        if (mSettleInterrupted) {
+            // 新的触摸让面板停在手指下
+            mSettleDriver.cancel();
+        }
+        if (mMetricsListener != null) {
+            mGestureMetrics.reset();
+            mGestureTracking = true;
+            mGestureDownTime = down.getEventTime();
+            mGestureStartTop = getSheetTop(child);
+        }
+    }
+
+    private void onGestureTouchUp(V child) {
+        if (!mGestureTouching) {
+            return;
+        }
+        mGestureTouching = false;
+        if (mSettleInterrupted) {
+            mSettleInterrupted = false;
+            if (mEngine.getState() == STATE_SETTLING) {
+                // 按下打断了沉降但没有拖动，继续吸附
+                settleToSnapTarget(child, 0);
             }
         }
+        if (mGestureTracking && mEngine.getState() != STATE_SETTLING
+                && mEngine.getState() != STATE_DRAGGING && !mNonTouchScrolling) {
+            finishGesture();
+        }
+    }
 
-        if (mViewDragHelper.smoothSlideViewTo(child, child.getLeft(), top)) {
-            setStateInternal(STATE_SETTLING);
-            ViewCompat.postOnAnimation(child, new SettleRunnable(child, targetState));
+    private void finishGesture() {
+        mGestureTracking = false;
+        final ViewGroup scrollLayout = mViewGroupRef == null ? null : mViewGroupRef.get();
+        if (scrollLayout != null && mMetricsListener != null) {
+            mMetricsListener.onGestureFinished(scrollLayout, mGestureMetrics);
+        }
+    }
+
+    @Override
+    public void onStopNestedScroll(@NonNull CoordinatorLayout coordinatorLayout, @NonNull V child,
+                                   @NonNull View target, int type) {
+        if (mRecorder != null) {
+            mRecorder.recordNestedStop(type);
+        }
+        if (type == ViewCompat.TYPE_TOUCH) {
+            stopTouchNestedScroll(child, target);
         } else {
-            setStateInternal(targetState);
+            stopNonTouchNestedScroll(child, target);
+        }
+    }
+
+    private void stopTouchNestedScroll(V child, View target) {
+        final int currentTop = getSheetTop(child);
+        if (currentTop == mFullExpandedSpace) {
+            setStateInternal(STATE_FULL_EXPANDED);
+            return;
+        }
+
+        if (mNestedScrollingChildRef == null || target != mNestedScrollingChildRef.get()
+                || !mNestedScrolled && mEngine.getState() != STATE_DRAGGING) {
+            return;
         }
         mNestedScrolled = false;
+        if (mNonTouchScrolling) {
+            // 列表在停止触摸滑动之前已经开始惯性滑动，由惯性继续带动，结束时再吸附
+            return;
+        }
+
+        // 触摸事件在分发给嵌套滑动的子View之前已经过onInterceptTouchEvent记录
+        settleToSnapTarget(child, mTouchPipeline.getYVelocity(mMaxVelocity));
+    }
+
+    private void stopNonTouchNestedScroll(V child, View target) {
+        if (!mNonTouchScrolling) {
+            return;
+        }
+        mNonTouchScrolling = false;
+        if (mNestedScrollingChildRef == null || target != mNestedScrollingChildRef.get()) {
+            return;
+        }
+        if (mGestureTouching) {
+            // 新的手势打断了惯性滑动，面板停在手指下，松手时再吸附
+            if (mEngine.getState() == STATE_SETTLING) {
+                setStateInternal(STATE_DRAGGING);
+            }
+            return;
+        }
+        final int currentTop = getSheetTop(child);
+        final int nearest = mEngine.findNearestAnchorIndex(currentTop);
+        if (mEngine.getAnchorTop(nearest) == currentTop) {
+            settleToAnchorIndex(child, nearest, 0);
+            return;
+        }
+        // 惯性在两个停靠位置之间耗尽，以最后一帧的位移近似速度方向吸附
+        settleToSnapTarget(child, -mLastNonTouchDy * NON_TOUCH_FRAMES_PER_SECOND);
     }
 
     @Override
     public boolean onNestedPreFling(@NonNull CoordinatorLayout coordinatorLayout, @NonNull V child,
                                     @NonNull View target, float velocityX, float velocityY) {
+        if (mRecorder != null) {
+            mRecorder.recordNestedPreFling(velocityY);
+        }
+        // 不消费惯性，列表以TYPE_NON_TOUCH的嵌套滑动把剩余的动量交给面板
         return target == mNestedScrollingChildRef.get()
-                && (mState != STATE_FULL_EXPANDED
-                || super.onNestedPreFling(coordinatorLayout, child, target, velocityX, velocityY));
+                && super.onNestedPreFling(coordinatorLayout, child, target, velocityX, velocityY);
     }
 
     private void setStateInternal(@State int state) {
-        if (mState == state) {
+        setStateInternal(state, SheetEngine.NO_ANCHOR);
+    }
+
+    /**
+     * @param anchorId state为{@link #STATE_ANCHORED}时停靠位置在behavior_anchors中的下标
+     */
+    private void setStateInternal(@State int state, int anchorId) {
+        final int oldState = mEngine.setState(state, anchorId);
+        if (oldState == SheetEngine.NO_STATE) {
             return;
         }
+        if (state == STATE_COLLAPSED && mScrollResetMode == SCROLL_RESET_COLLAPSED) {
+            resetScrollingChild();
+        }
         if (state == STATE_COLLAPSED || state == STATE_HIDDEN) {
-            mExpandedChildRef.get().setVisibility(View.GONE);
-        } else {
-            mExpandedChildRef.get().setVisibility(View.VISIBLE);
+            setExpandedChildShown(false);
+        } else if (mEngine.isExpanded()) {
+            setExpandedChildShown(true);
         }
-        @State final int oldState = mState;
-        mState = state;
+        updateMotionRender();
         ViewGroup scrollLayout = mViewGroupRef.get();
+        if (scrollLayout != null) {
+            mOcclusion.updateSiblings(scrollLayout, state == STATE_FULL_EXPANDED);
+            if (state != STATE_DRAGGING && state != STATE_SETTLING) {
+                updateViewportPadding(scrollLayout, getSheetTop(scrollLayout), true, false);
+            }
+        }
         if (scrollLayout != null && mCallback != null) {
+            //noinspection WrongConstant
             mCallback.onStateChanged(scrollLayout, oldState, state);
         }
+        mObservers.dispatchStateChanged(oldState, state);
+        if (mGroup != null) {
+            if (isExpandedState(state)) {
+                mGroup.onMemberExpanding(this);
+            } else if (state == STATE_DRAGGING) {
+                // 被其他布局收起时的沉降不改变层次
+                mGroup.onMemberDragging(this);
+            }
+        }
+    }
+
+    private static boolean isExpandedState(int state) {
+        return state == STATE_HALF_EXPANDED || state == STATE_FULL_EXPANDED || state == STATE_ANCHORED;
     }
 
     public void hide() {
         final int targetTop = mParentHeight;
-        if (mViewGroupRef != null && mViewGroupRef.get() != null) {
+        mSettleDriver.cancel();
+        mFakeDrag.cancel();
+        if (mViewGroupRef == null) {
+            // 还未layout，layout时直接放到隐藏的位置
+            mEngine.setState(STATE_HIDDEN, SheetEngine.NO_ANCHOR);
+            return;
+        }
+        if (mViewGroupRef.get() != null) {
             final ViewGroup child = mViewGroupRef.get();
-            ViewCompat.offsetTopAndBottom(child, targetTop - child.getTop());
+            moveSheetTo(child, targetTop);
             setStateInternal(STATE_HIDDEN);
         }
     }
 
     public void showCollapsed() {
+        mSettleDriver.cancel();
+        mFakeDrag.cancel();
+        if (mViewGroupRef == null) {
+            // 还未layout，layout时直接放到收起的位置
+            mEngine.setState(STATE_COLLAPSED, SheetEngine.NO_ANCHOR);
+            return;
+        }
         final ViewGroup child = mViewGroupRef.get();
-        ViewCompat.offsetTopAndBottom(child, mCollapsedSpace - child.getTop());
+        moveSheetTo(child, mCollapsedSpace);
         setStateInternal(STATE_COLLAPSED);
     }
 
     public boolean isExpanded() {
-        return mState == STATE_HALF_EXPANDED || mState == STATE_FULL_EXPANDED;
+        return mEngine.isExpanded();
     }
 
     @State
     public int getState() {
-        return mState;
+        //noinspection WrongConstant
+        return mEngine.getState();
     }
 
+    /**
+     * 沉降到指定的状态，还未layout时在layout时直接放到该状态的位置
+     *
+     * @param state {@link #STATE_HIDDEN}、{@link #STATE_COLLAPSED}、{@link #STATE_HALF_EXPANDED}
+     *              或{@link #STATE_FULL_EXPANDED}；停靠到behavior_anchors中的位置使用{@link #settleToAnchor(int)}
+     * @throws IllegalArgumentException state为{@link #STATE_ANCHORED}时
+     */
     public void setState(final @State int state) {
-        if (state == mState) {
+        if (state == STATE_ANCHORED) {
+            throw new IllegalArgumentException("STATE_ANCHORED needs an anchor index, use settleToAnchor(int) instead");
+        }
+        if (state == mEngine.getState()) {
             return;
         }
         if (mViewGroupRef == null) {
             // 还未layout，先修改状态
             if (state == STATE_HIDDEN || state == STATE_COLLAPSED
                     || state == STATE_HALF_EXPANDED || state == STATE_FULL_EXPANDED) {
-                mState = state;
+                mEngine.setState(state, SheetEngine.NO_ANCHOR);
             }
             return;
         }
@@ -570,6 +1537,9 @@ public class ScrollLayoutBehavior<V extends ViewGroup> extends CoordinatorLayout
         if (child == null) {
             return;
         }
+        if (state == STATE_HALF_EXPANDED || state == STATE_FULL_EXPANDED) {
+            inflateExpandedContent(child);
+        }
         ViewParent parent = child.getParent();
         if (parent != null && parent.isLayoutRequested() && ViewCompat.isAttachedToWindow(child)) {
             child.post(new Runnable() {
@@ -596,60 +1566,768 @@ public class ScrollLayoutBehavior<V extends ViewGroup> extends CoordinatorLayout
         } else {
             throw new IllegalArgumentException("Illegal state argument: " + state);
         }
-        if (mViewDragHelper.smoothSlideViewTo(child, child.getLeft(), top)) {
-            setStateInternal(STATE_SETTLING);
-            ViewCompat.postOnAnimation(child, new SettleRunnable(child, state));
-        } else {
-            setStateInternal(state);
-        }
+        settleTo(child, top, state, SheetEngine.NO_ANCHOR, 0);
     }
 
-    public boolean isHidden() {
-        return mState == STATE_HIDDEN;
+    /**
+     * 按{@link SnapPolicy}选择停靠位置并开始沉降
+     *
+     * @param velocity 松手时的速度，单位为像素/秒，正数表示向下
+     */
+    private void settleToSnapTarget(View child, float velocity) {
+        final int index = mEngine.findSnapIndex(getSheetTop(child), velocity);
+        settleToAnchorIndex(child, index, velocity);
     }
 
-    public int getFullExpandedSpace() {
-        return mFullExpandedSpace;
+    private void settleToAnchorIndex(View child, int index, float velocity) {
+        //noinspection WrongConstant
+        settleTo(child, mEngine.getAnchorTop(index), mEngine.getAnchorState(index), mEngine.getAnchorId(index),
+                velocity);
     }
 
-    public void setFullExpandedSpace(int fullExpandedSpace) {
-        mFullExpandedSpace = fullExpandedSpace;
+    /**
+     * 开始沉降到指定位置，正在沉降时改为沉降到新的位置并保留当前速度
+     *
+     * @param anchorId 目标为{@link #STATE_ANCHORED}时停靠位置在behavior_anchors中的下标
+     */
+    private void settleTo(View child, int top, @State int targetState, int anchorId, float yvel) {
+        mFakeDrag.cancel();
+        if (mSettleDriver.isRunning() || top != getSheetTop(child)) {
+            if (!mSettleDriver.isRunning()) {
+                mSettleStartTime = SystemClock.uptimeMillis();
+            }
+            setStateInternal(STATE_SETTLING);
+            mSettleDriver.start(child, top, targetState, anchorId, yvel);
+            if (mGroup != null && isExpandedState(targetState)) {
+                mGroup.onMemberExpanding(this);
+            }
+        } else {
+            setStateInternal(targetState, anchorId);
+            if (mGestureTracking && !mGestureTouching) {
+                finishGesture();
+            }
+        }
     }
 
-    public int getHalfExpandedSpace() {
-        return mHalfExpandedSpace;
+    /**
+     * @return 布局在父布局中的可见顶部位置，平移模式下包含translationY
+     */
+    private int getSheetTop(View child) {
+        if (mPositioningMode == POSITIONING_TRANSLATION) {
+            return child.getTop() + Math.round(child.getTranslationY());
+        }
+        return child.getTop();
     }
 
-    public int getCollapsedSpace() {
-        return mCollapsedSpace;
-    }
+    private void offsetSheet(View child, int dy) {
+        if (dy == 0) {
+            return;
+        }
+        if (mPositioningMode == POSITIONING_TRANSLATION) {
+            child.setTranslationY(child.getTranslationY() + dy);
+        } else {
+            ViewCompat.offsetTopAndBottom(child, dy);
+        }
+    }
+
+    private void moveSheetTo(View child, int top) {
+        if (mPositioningMode == POSITIONING_TRANSLATION) {
+            child.setTranslationY(top - child.getTop());
+        } else {
+            ViewCompat.offsetTopAndBottom(child, top - child.getTop());
+        }
+    }
+
+    /**
+     * @return 可停靠位置的数量，包括全展开、半展开、收起及behavior_anchors中的位置
+     */
+    public int getAnchorCount() {
+        return mEngine.getAnchorCount();
+    }
+
+    /**
+     * @param index 停靠位置的下标，从全展开（最上）开始
+     * @return 该停靠位置的顶部位置
+     */
+    public int getAnchorTop(int index) {
+        return mEngine.getAnchorTop(index);
+    }
+
+    /**
+     * @return 当前停靠位置的下标，不在停靠位置时返回-1
+     */
+    public int getAnchorIndex() {
+        return mEngine.getCurrentAnchorIndex();
+    }
+
+    /**
+     * 沉降到指定的停靠位置
+     *
+     * @param index 停靠位置的下标，见{@link #getAnchorCount()}
+     */
+    public void settleToAnchor(int index) {
+        final V child = mViewGroupRef == null ? null : mViewGroupRef.get();
+        if (child == null) {
+            return;
+        }
+        if (index < 0 || index >= mEngine.getAnchorCount()) {
+            throw new IndexOutOfBoundsException("Anchor index " + index + " out of range [0, "
+                    + mEngine.getAnchorCount() + ")");
+        }
+        if (mEngine.getAnchorState(index) != STATE_COLLAPSED) {
+            inflateExpandedContent(child);
+        }
+        settleToAnchorIndex(child, index, 0);
+    }
+
+    /**
+     * 设置了behavior_expandedLayout时，提前在后台加载展开内容
+     */
+    public void preloadExpandedContent() {
+        prepareExpandedContent();
+    }
+
+    /**
+     * @return 展开内容是否已加载，没有设置behavior_expandedLayout时总为true
+     */
+    public boolean isExpandedContentReady() {
+        return mExpandedLayoutId == 0 || mExpandedContentReady;
+    }
+
+    /**
+     * 设置额外的停靠位置，在下次layout时生效
+     *
+     * @param spaces 各停靠位置距离顶部的空间，单位为像素
+     */
+    public void setAnchorSpaces(int... spaces) {
+        final float[] anchorValues = new float[spaces.length];
+        for (int i = 0; i < spaces.length; i++) {
+            anchorValues[i] = spaces[i];
+        }
+        mEngine.setExtraAnchors(anchorValues, null);
+        mGeometryValid = false;
+        final V child = mViewGroupRef == null ? null : mViewGroupRef.get();
+        if (child != null) {
+            child.requestLayout();
+        }
+    }
+
+    public boolean isHidden() {
+        return mEngine.getState() == STATE_HIDDEN;
+    }
+
+    public int getFullExpandedSpace() {
+        return mFullExpandedSpace;
+    }
+
+    public void setFullExpandedSpace(int fullExpandedSpace) {
+        mFullExpandedSpace = fullExpandedSpace;
+        mGeometryValid = false;
+    }
+
+    public int getHalfExpandedSpace() {
+        return mHalfExpandedSpace;
+    }
+
+    public int getCollapsedSpace() {
+        return mCollapsedSpace;
+    }
+
+    /**
+     * 指定嵌套滑动的子View，指定后不再遍历布局查找。传null则恢复自动查找。
+     */
+    public void setScrollingChild(View scrollingChild) {
+        mScrollingChildExplicit = scrollingChild != null;
+        mScrollingChildDirty = scrollingChild == null;
+        mNestedScrollingChildRef = new WeakReference<>(scrollingChild);
+    }
+
+    /**
+     * 布局内的嵌套滑动子View有变化时调用，下次layout时重新查找
+     */
+    public void invalidateScrollingChild() {
+        if (!mScrollingChildExplicit) {
+            mScrollingChildDirty = true;
+        }
+    }
+
+    /**
+     * 设置收起时隐藏展开内容的方式
+     */
+    public void setExpandedHideMode(@HideMode int hideMode) {
+        if (mExpandedHideMode == hideMode) {
+            return;
+        }
+        final View expandedChild = mExpandedChildRef == null ? null : mExpandedChildRef.get();
+        if (expandedChild != null && mExpandedHideMode == HIDE_MODE_ALPHA) {
+            expandedChild.setAlpha(1f);
+        }
+        mExpandedHideMode = hideMode;
+        final boolean shown = mExpandedChildVisibility != EXPANDED_CHILD_HIDDEN;
+        mExpandedChildVisibility = EXPANDED_CHILD_UNKNOWN;
+        setExpandedChildShown(shown);
+    }
+
+    @HideMode
+    public int getExpandedHideMode() {
+        return mExpandedHideMode;
+    }
+
+    public void setExpandedShowThreshold(int threshold) {
+        mExpandedShowThreshold = threshold;
+    }
+
+    public int getExpandedShowThreshold() {
+        return mExpandedShowThreshold;
+    }
+
+    /**
+     * 设置移动布局的方式，切换后重新layout
+     */
+    public void setPositioningMode(@PositioningMode int positioningMode) {
+        if (mPositioningMode == positioningMode) {
+            return;
+        }
+        final V child = mViewGroupRef == null ? null : mViewGroupRef.get();
+        if (child == null) {
+            mPositioningMode = positioningMode;
+            return;
+        }
+        final int top = getSheetTop(child);
+        mSettleDriver.cancel();
+        mFakeDrag.cancel();
+        mViewDragHelper.abort();
+        child.setTranslationY(0);
+        mPositioningMode = positioningMode;
+        moveSheetTo(child, top);
+        child.requestLayout();
+    }
+
+    @PositioningMode
+    public int getPositioningMode() {
+        return mPositioningMode;
+    }
+
+    /**
+     * 设置拖动时是否把位置外推到当前帧的时间，可以降低高采样率屏幕上拖动的延迟感，默认关闭
+     */
+    public void setTouchResampling(boolean resampling) {
+        mTouchPipeline.setResampling(resampling);
+    }
+
+    public boolean isTouchResampling() {
+        return mTouchPipeline.isResampling();
+    }
+
+    /**
+     * 设置何时把嵌套滑动子View滚动到顶部
+     */
+    public void setScrollResetMode(@ScrollResetMode int scrollResetMode) {
+        mScrollResetMode = scrollResetMode;
+    }
+
+    @ScrollResetMode
+    public int getScrollResetMode() {
+        return mScrollResetMode;
+    }
+
+    /**
+     * 设置拖动和沉降时展开内容的绘制方式，默认为{@link #MOTION_RENDER_NONE}。
+     * 每次移动时使用的是硬件层或快照还是正常绘制，可以通过{@link GestureMetrics#getLayerSlides()}
+     * 和{@link GestureMetrics#getRedrawSlides()}查看
+     */
+    public void setMotionRenderMode(@MotionRenderMode int mode) {
+        mMotionRenderer.setMode(mode);
+        updateMotionRender();
+    }
+
+    @MotionRenderMode
+    public int getMotionRenderMode() {
+        return mMotionRenderer.getMode();
+    }
+
+    /**
+     * 设置如何减少被遮挡部分的绘制，可以组合{@link #OCCLUSION_CLIP}和{@link #OCCLUSION_SIBLINGS}，默认为{@link #OCCLUSION_NONE}
+     */
+    public void setOcclusionMode(@OcclusionMode int mode) {
+        mOcclusion.setMode(mode);
+        final V child = mViewGroupRef == null ? null : mViewGroupRef.get();
+        if (child != null) {
+            mOcclusion.updateClip(child, mParentHeight - getSheetTop(child));
+            mOcclusion.updateSiblings(child, mEngine.getState() == STATE_FULL_EXPANDED);
+        }
+    }
+
+    @OcclusionMode
+    public int getOcclusionMode() {
+        return mOcclusion.getMode();
+    }
+
+    /**
+     * 设置是否用底部内边距把嵌套滑动子View的可见区域限制在父布局内，默认关闭。
+     * 开启后RecyclerView只创建和绑定屏幕内的项，要求列表的clipToPadding为true。
+     * 对NestedScrollView等其他View只是增大了滚动范围，不会减少measure和绘制
+     */
+    public void setFitScrollingChildToViewport(boolean fit) {
+        mFitScrollingChildToViewport = fit;
+        final V child = mViewGroupRef == null ? null : mViewGroupRef.get();
+        if (!fit) {
+            mViewportPadding.release();
+        } else if (child != null) {
+            final int state = mEngine.getState();
+            updateViewportPadding(child, getSheetTop(child), state != STATE_DRAGGING && state != STATE_SETTLING,
+                    false);
+        }
+    }
+
+    public boolean isFitScrollingChildToViewport() {
+        return mFitScrollingChildToViewport;
+    }
+
+    /**
+     * 开始模拟拖动，之后用{@link #fakeDragBy(float)}移动布局，用{@link #endFakeDrag(float)}结束。
+     * 可以让布局跟随地图手势、ViewPager的页面偏移等其他滑动来源，移动时的限制和松开后的吸附与手指拖动相同
+     *
+     * @return 是否开始，布局还未layout或正在被手指拖动时返回false
+     */
+    public boolean beginFakeDrag() {
+        final V child = mViewGroupRef == null ? null : mViewGroupRef.get();
+        if (child == null || mFakeDrag.isActive() || mEngine.getState() == STATE_DRAGGING) {
+            return false;
+        }
+        mSettleDriver.cancel();
+        if (mEngine.getState() == STATE_COLLAPSED) {
+            prepareExpandedContent();
+        }
+        mFakeDrag.begin(child);
+        setStateInternal(STATE_DRAGGING);
+        return true;
+    }
+
+    /**
+     * 模拟拖动一段距离。同一帧内的多次调用会合并，每帧只移动和回调一次
+     *
+     * @param dy 拖动的距离，单位为像素，正数表示向下
+     */
+    public void fakeDragBy(float dy) {
+        if (!mFakeDrag.isActive()) {
+            throw new IllegalStateException("No fake drag in progress. Call beginFakeDrag first.");
+        }
+        mFakeDrag.add(dy);
+    }
+
+    /**
+     * 结束模拟拖动，按速度选择停靠位置并沉降
+     *
+     * @param velocity 结束时的速度，单位为像素/秒，正数表示向下
+     */
+    public void endFakeDrag(float velocity) {
+        if (!mFakeDrag.isActive()) {
+            throw new IllegalStateException("No fake drag in progress. Call beginFakeDrag first.");
+        }
+        final View child = mFakeDrag.end();
+        if (child != null) {
+            settleToSnapTarget(child, velocity);
+        }
+    }
+
+    public boolean isFakeDragging() {
+        return mFakeDrag.isActive();
+    }
+
+    /**
+     * @return 当前（或上一次）手势中因展开内容在GONE与VISIBLE之间切换而引起的重新布局次数
+     */
+    public int getGestureRelayoutCount() {
+        return mGestureRelayoutCount;
+    }
+
+    /**
+     * 设置松手后选择停靠位置的策略，默认为{@link FlingSnapPolicy}
+     */
+    public void setSnapPolicy(@NonNull SnapPolicy snapPolicy) {
+        mEngine.setSnapPolicy(snapPolicy);
+    }
+
+    public SnapPolicy getSnapPolicy() {
+        return mEngine.getSnapPolicy();
+    }
+
+    /**
+     * 设置手势录制器，之后收到的触摸事件和嵌套滑动事件都会被记录下来，为null时停止录制
+     */
+    public void setGestureRecorder(GestureRecorder recorder) {
+        mRecorder = recorder;
+        if (recorder != null) {
+            recorder.start(mEngine.getState());
+        }
+    }
+
+    /**
+     * 设置手势性能数据的监听，为null时不统计
+     */
+    public void setGestureMetricsListener(GestureMetricsListener listener) {
+        mMetricsListener = listener;
+        if (listener == null) {
+            mGestureTracking = false;
+        }
+    }
 
     public void setScrollLayoutCallback(ScrollLayoutCallback callback) {
         mCallback = callback;
     }
 
-    private class SettleRunnable implements Runnable {
+    /**
+     * 添加在主线程同步分发的观察者
+     */
+    public void addScrollLayoutObserver(@NonNull ScrollLayoutObserver observer) {
+        addScrollLayoutObserver(observer, DISPATCH_SYNC);
+    }
+
+    /**
+     * 添加观察者，耗时的观察者可以用{@link #DISPATCH_FRAME}每帧只处理一次。
+     * 合并分发时只分发最新的状态，中间状态（如{@link #STATE_SETTLING}）可能不会分发，
+     * onStateChanged的oldState是上一次分发的状态
+     */
+    public void addScrollLayoutObserver(@NonNull ScrollLayoutObserver observer, @DispatchMode int mode) {
+        if (mode != DISPATCH_SYNC && mode != DISPATCH_FRAME) {
+            throw new IllegalArgumentException("Illegal dispatch mode: " + mode);
+        }
+        mObservers.add(observer, mode, null, mEngine.getState(), getCurrentTop());
+    }
+
+    /**
+     * 添加在executor中分发的观察者，用于统计、地图、模糊等不需要在拖动的帧内完成的工作。
+     * 观察者不能在回调中操作View。上一次分发还没执行时只保留最新的位置和状态，
+     * 中间状态（如{@link #STATE_SETTLING}）可能不会分发，onStateChanged的oldState是上一次分发的状态；
+     * 移除后已经提交的分发不会再回调
+     */
+    public void addScrollLayoutObserver(@NonNull ScrollLayoutObserver observer, @NonNull Executor executor) {
+        mObservers.add(observer, DISPATCH_EXECUTOR, executor, mEngine.getState(), getCurrentTop());
+    }
 
-        private final View mView;
+    public void removeScrollLayoutObserver(ScrollLayoutObserver observer) {
+        mObservers.remove(observer);
+    }
+
+    /**
+     * 添加滑动比例与View属性的绑定，滑动时由behavior直接设置属性
+     */
+    public void addSlideBinding(@NonNull SlideBinding binding) {
+        mSlideBindings.add(binding);
+        final V child = mViewGroupRef == null ? null : mViewGroupRef.get();
+        if (child != null) {
+            mSlideBindings.apply(getSheetTop(child));
+        }
+    }
+
+    public void removeSlideBinding(SlideBinding binding) {
+        mSlideBindings.remove(binding);
+    }
+
+    private int getCurrentTop() {
+        final V child = mViewGroupRef == null ? null : mViewGroupRef.get();
+        return child == null ? 0 : getSheetTop(child);
+    }
+
+    /**
+     * 由Choreographer逐帧驱动的沉降，整个behavior只有一个实例，沉降中可以改变目标
+     */
+    private class SettleDriver implements Choreographer.FrameCallback {
+
+        private final SettleSpring mSpring = new SettleSpring(SETTLE_STIFFNESS);
+
+        private Choreographer mChoreographer;
+
+        private View mView;
 
         @State
-        private final int mTargetState;
+        private int mTargetState;
 
-        SettleRunnable(View view, @State int targetState) {
-            mView = view;
+        private int mTargetAnchorId;
+
+        private long mLastFrameTimeNanos;
+
+        boolean isRunning() {
+            return mView != null;
+        }
+
+        void start(View view, int top, @State int targetState, int targetAnchorId, float velocity) {
             mTargetState = targetState;
+            mTargetAnchorId = targetAnchorId;
+            mSpring.setBounds(mFullExpandedSpace, Math.max(mCollapsedSpace, mParentHeight));
+            if (mView == view) {
+                mSpring.retarget(top);
+                return;
+            }
+            cancel();
+            mView = view;
+            mSpring.start(getSheetTop(view), velocity, top);
+            // 与Choreographer的帧时间使用同一个时钟
+            mLastFrameTimeNanos = AnimationUtils.currentAnimationTimeMillis() * 1000000L;
+            scheduleFrame();
+        }
+
+        /**
+         * 在组中时由组的帧回调统一驱动
+         */
+        void scheduleFrame() {
+            if (mGroup != null) {
+                mGroup.scheduleFrame();
+                return;
+            }
+            if (mChoreographer == null) {
+                mChoreographer = Choreographer.getInstance();
+            }
+            mChoreographer.postFrameCallback(this);
+        }
+
+        void removeFrameCallback() {
+            if (mChoreographer != null) {
+                mChoreographer.removeFrameCallback(this);
+            }
+        }
+
+        void cancel() {
+            if (mView == null) {
+                return;
+            }
+            mView = null;
+            mSpring.cancel();
+            removeFrameCallback();
         }
 
         @Override
-        public void run() {
-            if (mViewDragHelper != null && mViewDragHelper.continueSettling(true)) {
-                ViewCompat.postOnAnimation(mView, this);
-            } else {
-                setStateInternal(mTargetState);
+        public void doFrame(long frameTimeNanos) {
+            TraceCompat.beginSection("ScrollLayoutBehavior#settle");
+            try {
+                settle(frameTimeNanos);
+            } finally {
+                TraceCompat.endSection();
             }
         }
+
+        private void settle(long frameTimeNanos) {
+            final View view = mView;
+            if (view == null) {
+                return;
+            }
+            final float dt = (frameTimeNanos - mLastFrameTimeNanos) / 1e9f;
+            mLastFrameTimeNanos = Math.max(mLastFrameTimeNanos, frameTimeNanos);
+            final boolean settling = mSpring.advance(dt);
+            final int top = Math.round(mSpring.getPosition());
+            if (top != getSheetTop(view)) {
+                moveSheetTo(view, top);
+                dispatchOnSlide(top);
+            }
+            if (mGestureTracking) {
+                mGestureMetrics.mSettleFrames++;
+            }
+            if (settling) {
+                scheduleFrame();
+                return;
+            }
+            mView = null;
+            if (mGestureTracking) {
+                mGestureMetrics.mSettleDuration += SystemClock.uptimeMillis() - mSettleStartTime;
+            }
+            setStateInternal(mTargetState, mTargetAnchorId);
+            if (mGestureTracking && !mGestureTouching) {
+                finishGesture();
+            }
+        }
+    }
+
+    /**
+     * 模拟拖动，累加一帧内的拖动距离，在下一帧统一移动
+     */
+    private class FakeDrag implements Choreographer.FrameCallback {
+
+        private Choreographer mChoreographer;
+
+        private View mView;
+
+        private float mPendingDy;
+
+        private boolean mPosted;
+
+        boolean isActive() {
+            return mView != null;
+        }
+
+        void begin(View view) {
+            mView = view;
+            mPendingDy = 0;
+        }
+
+        void add(float dy) {
+            mPendingDy += dy;
+            if (mPosted) {
+                return;
+            }
+            mPosted = true;
+            if (mGroup != null) {
+                mGroup.scheduleFrame();
+                return;
+            }
+            if (mChoreographer == null) {
+                mChoreographer = Choreographer.getInstance();
+            }
+            mChoreographer.postFrameCallback(this);
+        }
+
+        /**
+         * 立即移动还未移动的距离并结束
+         *
+         * @return 拖动的布局
+         */
+        View end() {
+            final View view = mView;
+            apply();
+            cancel();
+            return view;
+        }
+
+        void cancel() {
+            mView = null;
+            mPendingDy = 0;
+            if (mPosted) {
+                mPosted = false;
+                if (mChoreographer != null) {
+                    mChoreographer.removeFrameCallback(this);
+                }
+            }
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (mPosted) {
+                mPosted = false;
+                apply();
+            }
+        }
+
+        private void apply() {
+            final View view = mView;
+            if (view == null) {
+                return;
+            }
+            final int dy = (int) mPendingDy;
+            if (dy == 0) {
+                return;
+            }
+            // 不足一像素的部分留到下一帧
+            mPendingDy -= dy;
+            final int top = getSheetTop(view);
+            final int newTop = mEngine.clamp(top + dy);
+            if (newTop != top) {
+                moveSheetTo(view, newTop);
+                dispatchOnSlide(newTop);
+            }
+        }
+    }
+
+    ScrollLayoutGroup getGroup() {
+        return mGroup;
+    }
+
+    /**
+     * 由{@link ScrollLayoutGroup}在加入或移出时调用
+     */
+    void setGroup(ScrollLayoutGroup group) {
+        mGroup = group;
+        if (mSettleDriver.isRunning()) {
+            // 改由组或自己的帧回调继续沉降
+            mSettleDriver.removeFrameCallback();
+            mSettleDriver.scheduleFrame();
+        }
+    }
+
+    void doGroupFrame(long frameTimeNanos) {
+        mFakeDrag.doFrame(frameTimeNanos);
+        mSettleDriver.doFrame(frameTimeNanos);
+    }
+
+    @Nullable
+    V getScrollLayout() {
+        return mViewGroupRef == null ? null : mViewGroupRef.get();
+    }
+
+    /**
+     * @return 是否已展开或正在向展开状态沉降
+     */
+    boolean isExpandedOrExpanding() {
+        if (mEngine.getState() == STATE_SETTLING && mSettleDriver.isRunning()) {
+            return isExpandedState(mSettleDriver.mTargetState);
+        }
+        return mEngine.isExpanded();
     }
 
+    /**
+     * 保存停靠的状态及嵌套滑动子View的滚动位置。布局的位置由状态决定，横竖屏切换后父布局高度不同，不保存像素位置；
+     * 移动中保存的是将要停靠的状态。CoordinatorLayout只保存设置了id的子View的behavior状态
+     */
+    protected static class SavedState extends AbsSavedState {
+        @State
+        final int state;
+        final int anchorId;
+        /**
+         * RecyclerView第一个可见项的位置，其他View为-1
+         */
+        final int scrollPosition;
+        /**
+         * RecyclerView第一个可见项相对顶部内边距的偏移，其他View为scrollY
+         */
+        final int scrollOffset;
+
+        public SavedState(Parcel source) {
+            this(source, null);
+        }
+
+        public SavedState(Parcel source, ClassLoader loader) {
+            super(source, loader);
+            //noinspection WrongConstant
+            state = source.readInt();
+            anchorId = source.readInt();
+            scrollPosition = source.readInt();
+            scrollOffset = source.readInt();
+        }
+
+        public SavedState(Parcelable superState, @State int state, int anchorId, int scrollPosition,
+                          int scrollOffset) {
+            super(superState);
+            this.state = state;
+            this.anchorId = anchorId;
+            this.scrollPosition = scrollPosition;
+            this.scrollOffset = scrollOffset;
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(state);
+            out.writeInt(anchorId);
+            out.writeInt(scrollPosition);
+            out.writeInt(scrollOffset);
+        }
+
+        public static final Creator<SavedState> CREATOR = new ClassLoaderCreator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in, ClassLoader loader) {
+                return new SavedState(in, loader);
+            }
+
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in, null);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
 
     @SuppressWarnings("unchecked")
     public static <V extends ViewGroup> ScrollLayoutBehavior<V> from(V view) {
@@ -0,0 +1,221 @@
+package com.githang.behavior;
+
+import android.support.annotation.NonNull;
+import android.support.v4.os.TraceCompat;
+import android.support.v4.view.ViewCompat;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * 协调同一个CoordinatorLayout中的多个{@link ScrollLayoutBehavior}。
+ * <ul>
+ * <li>所有布局的沉降由同一个帧回调驱动，每帧在一次遍历中移动所有正在沉降的布局</li>
+ * <li>每次按下只判断一次由哪个布局处理触摸，其他布局在本次手势中直接跳过</li>
+ * <li>正在拖动或展开的布局显示在其他布局之上；互斥时一个布局展开会收起其他已展开的布局</li>
+ * <li>提升层次时只在需要时增大translationZ，恢复时还原为提升前的值</li>
+ * </ul>
+ * <pre>
+ * ScrollLayoutGroup group = new ScrollLayoutGroup();
+ * group.addBehavior(ScrollLayoutBehavior.from(routePanel));
+ * group.addBehavior(ScrollLayoutBehavior.from(detailsPanel));
+ * </pre>
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-08
+ */
+public class ScrollLayoutGroup {
+
+    private static final ScrollLayoutBehavior<?>[] EMPTY = new ScrollLayoutBehavior<?>[0];
+
+    /**
+     * 最上层布局比其他成员高出的Z，只用于决定绘制顺序，不明显改变阴影
+     */
+    private static final float RAISED_Z_GAP = 1f;
+
+    private ScrollLayoutBehavior<?>[] mMembers = EMPTY;
+
+    private boolean mExclusive = true;
+
+    private ScrollLayoutBehavior<?> mRaised;
+
+    /**
+     * 提升前最上层布局的translationZ，不再是最上层时还原
+     */
+    private float mRaisedTranslationZ;
+
+    private ScrollLayoutBehavior<?> mTouchOwner;
+
+    private long mTouchDownTime = -1;
+
+    private boolean mFramePosted;
+
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mFramePosted = false;
+            TraceCompat.beginSection("ScrollLayoutGroup#doFrame");
+            try {
+                final ScrollLayoutBehavior<?>[] members = mMembers;
+                for (ScrollLayoutBehavior<?> member : members) {
+                    member.doGroupFrame(frameTimeNanos);
+                }
+            } finally {
+                TraceCompat.endSection();
+            }
+        }
+    };
+
+    public void addBehavior(@NonNull ScrollLayoutBehavior<?> behavior) {
+        for (ScrollLayoutBehavior<?> member : mMembers) {
+            if (member == behavior) {
+                return;
+            }
+        }
+        final ScrollLayoutGroup old = behavior.getGroup();
+        if (old != null) {
+            old.removeBehavior(behavior);
+        }
+        final ScrollLayoutBehavior<?>[] members = new ScrollLayoutBehavior<?>[mMembers.length + 1];
+        System.arraycopy(mMembers, 0, members, 0, mMembers.length);
+        members[mMembers.length] = behavior;
+        mMembers = members;
+        behavior.setGroup(this);
+    }
+
+    public void removeBehavior(@NonNull ScrollLayoutBehavior<?> behavior) {
+        for (int i = 0; i < mMembers.length; i++) {
+            if (mMembers[i] == behavior) {
+                final ScrollLayoutBehavior<?>[] members = new ScrollLayoutBehavior<?>[mMembers.length - 1];
+                System.arraycopy(mMembers, 0, members, 0, i);
+                System.arraycopy(mMembers, i + 1, members, i, members.length - i);
+                mMembers = members.length == 0 ? EMPTY : members;
+                if (mTouchOwner == behavior) {
+                    mTouchOwner = null;
+                }
+                if (mRaised == behavior) {
+                    setRaised(null);
+                }
+                behavior.setGroup(null);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 设置是否互斥，互斥时一个布局展开会收起其他已展开的布局，默认为true
+     */
+    public void setExclusive(boolean exclusive) {
+        mExclusive = exclusive;
+    }
+
+    public boolean isExclusive() {
+        return mExclusive;
+    }
+
+    /**
+     * 成员需要下一帧继续沉降时调用，同一帧只注册一次回调
+     */
+    void scheduleFrame() {
+        if (!mFramePosted) {
+            mFramePosted = true;
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        }
+    }
+
+    /**
+     * 按下时在所有成员中选出按下位置最上层的布局，本次手势的后续事件只交给它处理
+     *
+     * @return behavior是否处理本次手势
+     */
+    boolean isTouchOwner(ScrollLayoutBehavior<?> behavior, MotionEvent event) {
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN && event.getEventTime() != mTouchDownTime) {
+            mTouchDownTime = event.getEventTime();
+            mTouchOwner = findTopmostMemberUnder(event.getX(), event.getY());
+        }
+        return mTouchOwner == behavior;
+    }
+
+    private ScrollLayoutBehavior<?> findTopmostMemberUnder(float x, float y) {
+        ScrollLayoutBehavior<?> topmost = null;
+        View topmostSheet = null;
+        for (ScrollLayoutBehavior<?> member : mMembers) {
+            final View sheet = member.getScrollLayout();
+            if (sheet == null || !sheet.isShown()) {
+                continue;
+            }
+            final float top = sheet.getTop() + sheet.getTranslationY();
+            if (x < sheet.getLeft() || x >= sheet.getRight() || y < top || y >= top + sheet.getHeight()) {
+                continue;
+            }
+            if (topmostSheet == null || isAbove(sheet, topmostSheet)) {
+                topmost = member;
+                topmostSheet = sheet;
+            }
+        }
+        return topmost;
+    }
+
+    private static boolean isAbove(View view, View other) {
+        final float z = ViewCompat.getZ(view);
+        final float otherZ = ViewCompat.getZ(other);
+        if (z != otherZ) {
+            return z > otherZ;
+        }
+        final ViewGroup parent = (ViewGroup) view.getParent();
+        return parent == other.getParent() && parent.indexOfChild(view) > parent.indexOfChild(other);
+    }
+
+    /**
+     * 成员开始拖动时调用
+     */
+    void onMemberDragging(ScrollLayoutBehavior<?> behavior) {
+        setRaised(behavior);
+    }
+
+    /**
+     * 成员展开或开始向展开状态沉降时调用
+     */
+    void onMemberExpanding(ScrollLayoutBehavior<?> behavior) {
+        setRaised(behavior);
+        if (!mExclusive) {
+            return;
+        }
+        final ScrollLayoutBehavior<?>[] members = mMembers;
+        for (ScrollLayoutBehavior<?> member : members) {
+            if (member != behavior && member.isExpandedOrExpanding()) {
+                member.setState(ScrollLayoutBehavior.STATE_COLLAPSED);
+            }
+        }
+    }
+
+    private void setRaised(ScrollLayoutBehavior<?> behavior) {
+        if (mRaised == behavior) {
+            return;
+        }
+        // 修改translationZ不会像bringToFront那样重新布局，Android 5.0以下按布局中的顺序绘制
+        final View oldSheet = mRaised == null ? null : mRaised.getScrollLayout();
+        if (oldSheet != null) {
+            ViewCompat.setTranslationZ(oldSheet, mRaisedTranslationZ);
+        }
+        mRaised = behavior;
+        final View sheet = behavior == null ? null : behavior.getScrollLayout();
+        if (sheet == null) {
+            return;
+        }
+        mRaisedTranslationZ = ViewCompat.getTranslationZ(sheet);
+        float othersZ = -Float.MAX_VALUE;
+        for (ScrollLayoutBehavior<?> member : mMembers) {
+            final View other = member.getScrollLayout();
+            if (member != behavior && other != null) {
+                othersZ = Math.max(othersZ, ViewCompat.getZ(other));
+            }
+        }
+        // 应用设置的elevation和translationZ已经让它在最上层时不修改
+        final float minTranslationZ = othersZ + RAISED_Z_GAP - ViewCompat.getElevation(sheet);
+        if (mRaisedTranslationZ < minTranslationZ) {
+            ViewCompat.setTranslationZ(sheet, minTranslationZ);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.githang.behavior;
+
+import android.graphics.Rect;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * 减少布局被遮挡部分的绘制。
+ * 把布局的裁剪区域限制在父布局内可见的部分，位于父布局底部以下的内容不会被绘制；
+ * 全展开并盖住整个父布局时，把位于布局下面、完全被盖住的兄弟View设为{@link View#INVISIBLE}，离开全展开时恢复。
+ * 设为不可见会改变应用读到的可见性，辅助功能也会跳过这些View，期间被应用改过可见性的View不再恢复。
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-08
+ */
+class SheetOcclusion {
+
+    @SuppressWarnings("unchecked")
+    private static final WeakReference<View>[] EMPTY = new WeakReference[0];
+
+    private int mMode = ScrollLayoutBehavior.OCCLUSION_NONE;
+
+    private final Rect mClipBounds = new Rect();
+
+    private boolean mClipped;
+
+    /**
+     * 被设为不可见的兄弟View
+     */
+    private WeakReference<View>[] mHiddenSiblings = EMPTY;
+
+    void setMode(int mode) {
+        mMode = mode;
+    }
+
+    int getMode() {
+        return mMode;
+    }
+
+    /**
+     * 布局的位置变化时调用
+     *
+     * @param visibleHeight 布局在父布局内可见部分的高度
+     */
+    void updateClip(View sheet, int visibleHeight) {
+        if ((mMode & ScrollLayoutBehavior.OCCLUSION_CLIP) == 0) {
+            if (mClipped) {
+                mClipped = false;
+                ViewCompat.setClipBounds(sheet, null);
+            }
+            return;
+        }
+        final int width = sheet.getWidth();
+        final int bottom = Math.max(0, Math.min(visibleHeight, sheet.getHeight()));
+        if (mClipped && mClipBounds.right == width && mClipBounds.bottom == bottom) {
+            return;
+        }
+        mClipped = true;
+        mClipBounds.set(0, 0, width, bottom);
+        ViewCompat.setClipBounds(sheet, mClipBounds);
+    }
+
+    /**
+     * 状态变化或重新布局时调用
+     *
+     * @param fullExpanded 布局是否处于全展开状态
+     */
+    void updateSiblings(View sheet, boolean fullExpanded) {
+        if (!fullExpanded || (mMode & ScrollLayoutBehavior.OCCLUSION_SIBLINGS) == 0) {
+            restoreSiblings();
+            return;
+        }
+        if (mHiddenSiblings.length > 0 || !(sheet.getParent() instanceof ViewGroup)) {
+            return;
+        }
+        final ViewGroup parent = (ViewGroup) sheet.getParent();
+        final int sheetIndex = parent.indexOfChild(sheet);
+        final float sheetZ = ViewCompat.getZ(sheet);
+        final int sheetTop = sheet.getTop() + Math.round(sheet.getTranslationY());
+        final int sheetBottom = sheetTop + sheet.getHeight();
+        int count = 0;
+        @SuppressWarnings("unchecked")
+        final WeakReference<View>[] hidden = new WeakReference[sheetIndex];
+        // 只有在布局之前绘制的View才可能被盖住
+        for (int i = 0; i < sheetIndex; i++) {
+            final View sibling = parent.getChildAt(i);
+            if (sibling.getVisibility() != View.VISIBLE || ViewCompat.getZ(sibling) > sheetZ) {
+                continue;
+            }
+            final int top = sibling.getTop() + Math.round(sibling.getTranslationY());
+            final int left = sibling.getLeft() + Math.round(sibling.getTranslationX());
+            if (left >= sheet.getLeft() && left + sibling.getWidth() <= sheet.getRight()
+                    && top >= sheetTop && top + sibling.getHeight() <= sheetBottom) {
+                sibling.setVisibility(View.INVISIBLE);
+                hidden[count++] = new WeakReference<>(sibling);
+            }
+        }
+        if (count > 0) {
+            @SuppressWarnings("unchecked")
+            final WeakReference<View>[] siblings = new WeakReference[count];
+            System.arraycopy(hidden, 0, siblings, 0, count);
+            mHiddenSiblings = siblings;
+        }
+    }
+
+    void restoreSiblings() {
+        for (WeakReference<View> ref : mHiddenSiblings) {
+            final View sibling = ref.get();
+            // 期间被外部改过可见性的不再恢复
+            if (sibling != null && sibling.getVisibility() == View.INVISIBLE) {
+                sibling.setVisibility(View.VISIBLE);
+            }
+        }
+        mHiddenSiblings = EMPTY;
+    }
+}
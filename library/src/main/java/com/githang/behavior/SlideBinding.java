@@ -0,0 +1,179 @@
+package com.githang.behavior;
+
+import android.support.annotation.NonNull;
+import android.view.View;
+import android.view.animation.Interpolator;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把布局在两个状态之间滑动的比例映射到其他View的属性上，如标题栏的透明度、遮罩的透明度、按钮的平移和缩放。
+ * 通过{@link ScrollLayoutBehavior#addSlideBinding(SlideBinding)}添加后由behavior在滑动时直接设置，不需要在onSlide中处理。
+ * 只弱引用所绑定的View，View被回收后对应的属性不再设置。
+ * <pre>
+ * SlideBinding binding = new SlideBinding.Builder(ScrollLayoutBehavior.STATE_HALF_EXPANDED,
+ *         ScrollLayoutBehavior.STATE_FULL_EXPANDED)
+ *         .alpha(toolbar, 0, 1)
+ *         .interpolator(new AccelerateInterpolator())
+ *         .translationY(fab, 0, fabOffset)
+ *         .build();
+ * </pre>
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-07
+ */
+public class SlideBinding {
+
+    static final int PROPERTY_ALPHA = 0;
+    static final int PROPERTY_TRANSLATION_X = 1;
+    static final int PROPERTY_TRANSLATION_Y = 2;
+    static final int PROPERTY_SCALE_X = 3;
+    static final int PROPERTY_SCALE_Y = 4;
+    static final int PROPERTY_ROTATION = 5;
+
+    @ScrollLayoutBehavior.State
+    final int mFromState;
+
+    @ScrollLayoutBehavior.State
+    final int mToState;
+
+    final int mFromAnchorId;
+    final int mToAnchorId;
+
+    final WeakReference<View>[] mViews;
+    final int[] mProperties;
+    final float[] mStartValues;
+    final float[] mEndValues;
+    final Interpolator[] mInterpolators;
+
+    private SlideBinding(Builder builder) {
+        mFromState = builder.mFromState;
+        mToState = builder.mToState;
+        mFromAnchorId = builder.mFromAnchorId;
+        mToAnchorId = builder.mToAnchorId;
+        final int count = builder.mViews.size();
+        //noinspection unchecked
+        mViews = new WeakReference[count];
+        mInterpolators = builder.mInterpolators.toArray(new Interpolator[count]);
+        mProperties = new int[count];
+        mStartValues = new float[count];
+        mEndValues = new float[count];
+        for (int i = 0; i < count; i++) {
+            mViews[i] = new WeakReference<>(builder.mViews.get(i));
+            mProperties[i] = builder.mProperties.get(i);
+            mStartValues[i] = builder.mStartValues.get(i);
+            mEndValues[i] = builder.mEndValues.get(i);
+        }
+    }
+
+    public static class Builder {
+        private final int mFromState;
+        private final int mToState;
+        private final int mFromAnchorId;
+        private final int mToAnchorId;
+
+        private Interpolator mInterpolator;
+
+        private final List<View> mViews = new ArrayList<>();
+        private final List<Integer> mProperties = new ArrayList<>();
+        private final List<Float> mStartValues = new ArrayList<>();
+        private final List<Float> mEndValues = new ArrayList<>();
+        private final List<Interpolator> mInterpolators = new ArrayList<>();
+
+        /**
+         * 布局位于fromState的位置时比例为0，位于toState的位置时比例为1，超出范围时取边界值
+         *
+         * @param fromState {@link ScrollLayoutBehavior#STATE_HIDDEN}、{@link ScrollLayoutBehavior#STATE_COLLAPSED}、
+         *                  {@link ScrollLayoutBehavior#STATE_HALF_EXPANDED}或{@link ScrollLayoutBehavior#STATE_FULL_EXPANDED}，
+         *                  停靠位置使用{@link #Builder(int, int, int, int)}
+         */
+        public Builder(@ScrollLayoutBehavior.State int fromState, @ScrollLayoutBehavior.State int toState) {
+            this(fromState, SheetEngine.NO_ANCHOR, toState, SheetEngine.NO_ANCHOR);
+        }
+
+        /**
+         * 起止位置可以是behavior_anchors中的停靠位置，布局中不存在该停靠位置时这个binding不生效
+         *
+         * @param fromAnchorId fromState为{@link ScrollLayoutBehavior#STATE_ANCHORED}时停靠位置在behavior_anchors中的下标，
+         *                     其他状态时忽略
+         * @param toAnchorId   toState为{@link ScrollLayoutBehavior#STATE_ANCHORED}时停靠位置在behavior_anchors中的下标，
+         *                     其他状态时忽略
+         */
+        public Builder(@ScrollLayoutBehavior.State int fromState, int fromAnchorId,
+                       @ScrollLayoutBehavior.State int toState, int toAnchorId) {
+            checkState(fromState, fromAnchorId);
+            checkState(toState, toAnchorId);
+            if (fromState != ScrollLayoutBehavior.STATE_ANCHORED) {
+                fromAnchorId = SheetEngine.NO_ANCHOR;
+            }
+            if (toState != ScrollLayoutBehavior.STATE_ANCHORED) {
+                toAnchorId = SheetEngine.NO_ANCHOR;
+            }
+            if (fromState == toState && fromAnchorId == toAnchorId) {
+                throw new IllegalArgumentException("fromState and toState must be different");
+            }
+            mFromState = fromState;
+            mToState = toState;
+            mFromAnchorId = fromAnchorId;
+            mToAnchorId = toAnchorId;
+        }
+
+        private static void checkState(int state, int anchorId) {
+            if (state == ScrollLayoutBehavior.STATE_ANCHORED) {
+                if (anchorId < 0) {
+                    throw new IllegalArgumentException("Illegal anchorId argument: " + anchorId);
+                }
+                return;
+            }
+            if (state != ScrollLayoutBehavior.STATE_HIDDEN && state != ScrollLayoutBehavior.STATE_COLLAPSED
+                    && state != ScrollLayoutBehavior.STATE_HALF_EXPANDED
+                    && state != ScrollLayoutBehavior.STATE_FULL_EXPANDED) {
+                throw new IllegalArgumentException("Illegal state argument: " + state);
+            }
+        }
+
+        /**
+         * 设置之后添加的属性所用的插值器，为null时为线性
+         */
+        public Builder interpolator(Interpolator interpolator) {
+            mInterpolator = interpolator;
+            return this;
+        }
+
+        public Builder alpha(@NonNull View view, float from, float to) {
+            return add(view, PROPERTY_ALPHA, from, to);
+        }
+
+        public Builder translationX(@NonNull View view, float from, float to) {
+            return add(view, PROPERTY_TRANSLATION_X, from, to);
+        }
+
+        public Builder translationY(@NonNull View view, float from, float to) {
+            return add(view, PROPERTY_TRANSLATION_Y, from, to);
+        }
+
+        public Builder scale(@NonNull View view, float from, float to) {
+            add(view, PROPERTY_SCALE_X, from, to);
+            return add(view, PROPERTY_SCALE_Y, from, to);
+        }
+
+        public Builder rotation(@NonNull View view, float from, float to) {
+            return add(view, PROPERTY_ROTATION, from, to);
+        }
+
+        private Builder add(View view, int property, float from, float to) {
+            mViews.add(view);
+            mProperties.add(property);
+            mStartValues.add(from);
+            mEndValues.add(to);
+            mInterpolators.add(mInterpolator);
+            return this;
+        }
+
+        public SlideBinding build() {
+            return new SlideBinding(this);
+        }
+    }
+}
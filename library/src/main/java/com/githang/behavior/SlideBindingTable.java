@@ -0,0 +1,193 @@
+package com.githang.behavior;
+
+import android.view.View;
+import android.view.animation.Interpolator;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * 把所有{@link SlideBinding}展开成平铺的数组，滑动时在一个循环中计算并设置属性，值没有变化时不重复设置。
+ * 停靠位置的起止位置从{@link SheetEngine}中查找，找不到时该binding不生效。
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-07
+ */
+class SlideBindingTable {
+
+    private final SheetEngine mEngine;
+
+    private SlideBinding[] mBindings = new SlideBinding[0];
+
+    /**
+     * 每个binding比例为0和1时的位置，由{@link #setStateTops(int, int, int, int)}计算
+     */
+    private float[] mFromTops = new float[0];
+    private float[] mRanges = new float[0];
+    private float[] mFractions = new float[0];
+
+    private int[] mOwners = new int[0];
+    @SuppressWarnings("unchecked")
+    private WeakReference<View>[] mViews = new WeakReference[0];
+    private int[] mProperties = new int[0];
+    private float[] mStartValues = new float[0];
+    private float[] mDeltas = new float[0];
+    private Interpolator[] mInterpolators = new Interpolator[0];
+    private float[] mLastValues = new float[0];
+
+    private final int[] mStateTops = new int[SheetEngine.STATE_ANCHORED + 1];
+
+    private boolean mResolved;
+
+    private int mLastTop = Integer.MIN_VALUE;
+
+    SlideBindingTable(SheetEngine engine) {
+        mEngine = engine;
+    }
+
+    void add(SlideBinding binding) {
+        for (SlideBinding b : mBindings) {
+            if (b == binding) {
+                return;
+            }
+        }
+        final SlideBinding[] bindings = new SlideBinding[mBindings.length + 1];
+        System.arraycopy(mBindings, 0, bindings, 0, mBindings.length);
+        bindings[mBindings.length] = binding;
+        mBindings = bindings;
+        rebuild();
+    }
+
+    void remove(SlideBinding binding) {
+        for (int i = 0; i < mBindings.length; i++) {
+            if (mBindings[i] == binding) {
+                final SlideBinding[] bindings = new SlideBinding[mBindings.length - 1];
+                System.arraycopy(mBindings, 0, bindings, 0, i);
+                System.arraycopy(mBindings, i + 1, bindings, i, bindings.length - i);
+                mBindings = bindings;
+                rebuild();
+                return;
+            }
+        }
+    }
+
+    private void rebuild() {
+        int count = 0;
+        for (SlideBinding binding : mBindings) {
+            count += binding.mViews.length;
+        }
+        mOwners = new int[count];
+        //noinspection unchecked
+        mViews = new WeakReference[count];
+        mProperties = new int[count];
+        mStartValues = new float[count];
+        mDeltas = new float[count];
+        mInterpolators = new Interpolator[count];
+        mLastValues = new float[count];
+        int index = 0;
+        for (int b = 0; b < mBindings.length; b++) {
+            final SlideBinding binding = mBindings[b];
+            for (int i = 0; i < binding.mViews.length; i++, index++) {
+                mOwners[index] = b;
+                mViews[index] = binding.mViews[i];
+                mProperties[index] = binding.mProperties[i];
+                mStartValues[index] = binding.mStartValues[i];
+                mDeltas[index] = binding.mEndValues[i] - binding.mStartValues[i];
+                mInterpolators[index] = binding.mInterpolators[i];
+                mLastValues[index] = Float.NaN;
+            }
+        }
+        mFromTops = new float[mBindings.length];
+        mRanges = new float[mBindings.length];
+        mFractions = new float[mBindings.length];
+        resolve();
+    }
+
+    /**
+     * 布局的各状态位置或停靠位置变化时调用
+     */
+    void setStateTops(int hiddenTop, int collapsedTop, int halfExpandedTop, int fullExpandedTop) {
+        mStateTops[SheetEngine.STATE_HIDDEN] = hiddenTop;
+        mStateTops[SheetEngine.STATE_COLLAPSED] = collapsedTop;
+        mStateTops[SheetEngine.STATE_HALF_EXPANDED] = halfExpandedTop;
+        mStateTops[SheetEngine.STATE_FULL_EXPANDED] = fullExpandedTop;
+        mResolved = true;
+        resolve();
+    }
+
+    private void resolve() {
+        for (int b = 0; b < mBindings.length; b++) {
+            final SlideBinding binding = mBindings[b];
+            final int fromTop = getTop(binding.mFromState, binding.mFromAnchorId);
+            final int toTop = getTop(binding.mToState, binding.mToAnchorId);
+            mFromTops[b] = fromTop;
+            // 停靠位置不存在时用NaN标记，不设置属性
+            mRanges[b] = fromTop == Integer.MIN_VALUE || toTop == Integer.MIN_VALUE ? Float.NaN : toTop - fromTop;
+        }
+        mLastTop = Integer.MIN_VALUE;
+    }
+
+    /**
+     * @return 状态所在的位置，停靠位置不存在时返回Integer.MIN_VALUE
+     */
+    private int getTop(int state, int anchorId) {
+        if (state != SheetEngine.STATE_ANCHORED) {
+            return mStateTops[state];
+        }
+        final int index = mEngine.findAnchorIndex(anchorId);
+        return index < 0 ? Integer.MIN_VALUE : mEngine.getAnchorTop(index);
+    }
+
+    void apply(int top) {
+        if (!mResolved || top == mLastTop) {
+            return;
+        }
+        mLastTop = top;
+        for (int b = 0; b < mFractions.length; b++) {
+            final float range = mRanges[b];
+            if (Float.isNaN(range)) {
+                mFractions[b] = Float.NaN;
+                continue;
+            }
+            float fraction = range == 0 ? 1 : (top - mFromTops[b]) / range;
+            mFractions[b] = fraction < 0 ? 0 : fraction > 1 ? 1 : fraction;
+        }
+        for (int i = 0; i < mViews.length; i++) {
+            float fraction = mFractions[mOwners[i]];
+            final View view = mViews[i].get();
+            if (view == null || Float.isNaN(fraction)) {
+                continue;
+            }
+            final Interpolator interpolator = mInterpolators[i];
+            if (interpolator != null) {
+                fraction = interpolator.getInterpolation(fraction);
+            }
+            final float value = mStartValues[i] + mDeltas[i] * fraction;
+            if (value == mLastValues[i]) {
+                continue;
+            }
+            mLastValues[i] = value;
+            switch (mProperties[i]) {
+                case SlideBinding.PROPERTY_ALPHA:
+                    view.setAlpha(value);
+                    break;
+                case SlideBinding.PROPERTY_TRANSLATION_X:
+                    view.setTranslationX(value);
+                    break;
+                case SlideBinding.PROPERTY_TRANSLATION_Y:
+                    view.setTranslationY(value);
+                    break;
+                case SlideBinding.PROPERTY_SCALE_X:
+                    view.setScaleX(value);
+                    break;
+                case SlideBinding.PROPERTY_SCALE_Y:
+                    view.setScaleY(value);
+                    break;
+                case SlideBinding.PROPERTY_ROTATION:
+                    view.setRotation(value);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.githang.behavior;
+
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.animation.AnimationUtils;
+
+/**
+ * behavior的触摸输入处理。
+ * 同一个事件可能先后经过onInterceptTouchEvent和onTouchEvent，这里保证每个事件只记录一次；
+ * VelocityTracker在behavior的生命周期内只创建一次，每次按下时清空。
+ * 开启重采样时，用事件中批量的历史采样估算手指速度，把拖动位置外推到当前帧的时间。
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-05
+ */
+class TouchPipeline {
+
+    /**
+     * 外推的最长时间，单位为毫秒
+     */
+    private static final long MAX_PREDICTION_TIME = 16;
+
+    private VelocityTracker mTracker;
+
+    /**
+     * 上一次记录的事件。事件对象会被回收复用，同时比较事件时间
+     */
+    private MotionEvent mLastEvent;
+    private long mLastEventTime = -1;
+
+    private int mTrackedPointerId = MotionEvent.INVALID_POINTER_ID;
+
+    private float mPrevSampleY;
+    private long mPrevSampleTime = -1;
+
+    private boolean mResampling;
+
+    private int mPrediction;
+    private int mAppliedPrediction;
+
+    /**
+     * @return 事件是否是新的事件，重复的事件返回false
+     */
+    boolean addMovement(MotionEvent event) {
+        if (event == mLastEvent && event.getEventTime() == mLastEventTime) {
+            return false;
+        }
+        mLastEvent = event;
+        mLastEventTime = event.getEventTime();
+        final int action = event.getActionMasked();
+        if (mTracker == null) {
+            mTracker = VelocityTracker.obtain();
+        }
+        if (action == MotionEvent.ACTION_DOWN) {
+            mTracker.clear();
+            mTrackedPointerId = MotionEvent.INVALID_POINTER_ID;
+            mPrevSampleTime = -1;
+            mPrediction = 0;
+            mAppliedPrediction = 0;
+        }
+        // VelocityTracker会读取事件中批量的历史采样
+        mTracker.addMovement(event);
+        if (mResampling && action == MotionEvent.ACTION_MOVE) {
+            updatePrediction(event);
+        } else if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            // 松手后不再有拖动来抵消已加上的外推，下一次拖动从0开始
+            mPrediction = 0;
+            mAppliedPrediction = 0;
+        } else if (action != MotionEvent.ACTION_MOVE) {
+            mPrediction = 0;
+        }
+        return true;
+    }
+
+    private void updatePrediction(MotionEvent event) {
+        final int index = mTrackedPointerId == MotionEvent.INVALID_POINTER_ID
+                ? -1 : event.findPointerIndex(mTrackedPointerId);
+        if (index < 0) {
+            mPrediction = 0;
+            mPrevSampleTime = -1;
+            return;
+        }
+        final float y = event.getY(index);
+        final long time = event.getEventTime();
+        // 优先使用同一事件中最近的历史采样，时间间隔最短
+        final int historySize = event.getHistorySize();
+        float prevY = mPrevSampleY;
+        long prevTime = mPrevSampleTime;
+        if (historySize > 0) {
+            prevY = event.getHistoricalY(index, historySize - 1);
+            prevTime = event.getHistoricalEventTime(historySize - 1);
+        }
+        mPrevSampleY = y;
+        mPrevSampleTime = time;
+        if (prevTime < 0 || time <= prevTime) {
+            mPrediction = 0;
+            return;
+        }
+        final long frameTime = AnimationUtils.currentAnimationTimeMillis();
+        final long horizon = Math.min(Math.max(frameTime - time, 0), MAX_PREDICTION_TIME);
+        mPrediction = Math.round((y - prevY) / (time - prevTime) * horizon);
+    }
+
+    /**
+     * 设置拖动所跟随的手指，用于外推和松手速度
+     */
+    void setTrackedPointer(int pointerId) {
+        mTrackedPointerId = pointerId;
+    }
+
+    void setResampling(boolean resampling) {
+        mResampling = resampling;
+        if (!resampling) {
+            mPrediction = 0;
+        }
+    }
+
+    boolean isResampling() {
+        return mResampling;
+    }
+
+    /**
+     * @return 自上次调用以来外推位移的变化量，加到拖动位置上后视图保持在手指外推的位置
+     */
+    int consumePredictionDelta() {
+        final int delta = mPrediction - mAppliedPrediction;
+        mAppliedPrediction = mPrediction;
+        return delta;
+    }
+
+    /**
+     * @return 拖动手指的速度，单位为像素/秒，正数表示向下
+     */
+    float getYVelocity(int maxVelocity) {
+        if (mTracker == null) {
+            return 0;
+        }
+        mTracker.computeCurrentVelocity(1000, maxVelocity);
+        return mTrackedPointerId == MotionEvent.INVALID_POINTER_ID
+                ? mTracker.getYVelocity() : mTracker.getYVelocity(mTrackedPointerId);
+    }
+
+    void recycle() {
+        mLastEvent = null;
+        if (mTracker != null) {
+            mTracker.recycle();
+            mTracker = null;
+        }
+    }
+}
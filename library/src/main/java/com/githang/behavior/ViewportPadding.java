@@ -0,0 +1,109 @@
+package com.githang.behavior;
+
+import android.view.View;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * 用底部内边距把嵌套滑动子View的可见区域限制在父布局内。
+ * 布局按父布局的高度measure后再往下移动，列表底部有一部分在屏幕以外。RecyclerView只会填充内边距以内的区域，
+ * 这样屏幕以外的项不会被创建和绑定；NestedScrollView等其他View仍会measure和绘制全部内容，只是滚动范围变大。
+ * 停靠时内边距与屏幕以外的高度一致；移动时只在可见区域要超出内边距时才一次放大一段，不会每帧都重新布局。
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-08
+ */
+class ViewportPadding {
+
+    private WeakReference<View> mTargetRef;
+
+    /**
+     * 列表自己的底部内边距
+     */
+    private int mBasePadding;
+
+    /**
+     * 当前已设置的额外底部内边距
+     */
+    private int mExtraPadding;
+
+    /**
+     * 需要的额外底部内边距，layout期间计算出的值延后设置
+     */
+    private int mTargetExtraPadding;
+
+    private boolean mApplyPosted;
+
+    private final Runnable mApplyRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mApplyPosted = false;
+            final View target = mTargetRef == null ? null : mTargetRef.get();
+            if (target != null) {
+                setExtraPadding(target, mTargetExtraPadding);
+            }
+        }
+    };
+
+    /**
+     * @param target      嵌套滑动子View
+     * @param hiddenBelow 列表在父布局底部以下的高度
+     * @param resting     布局是否停在某个状态
+     * @param growStep    移动时可见区域每次放大的高度
+     * @param inLayout    是否在layout期间调用，此时修改内边距会在layout中再请求layout，改为post到layout之后设置
+     */
+    void update(View target, int hiddenBelow, boolean resting, int growStep, boolean inLayout) {
+        final View current = mTargetRef == null ? null : mTargetRef.get();
+        if (current != target) {
+            release();
+            mTargetRef = new WeakReference<>(target);
+            mBasePadding = target.getPaddingBottom();
+            mExtraPadding = 0;
+            mTargetExtraPadding = 0;
+        }
+        hiddenBelow = Math.max(0, hiddenBelow);
+        int extra;
+        if (resting) {
+            extra = hiddenBelow;
+        } else if (hiddenBelow < mTargetExtraPadding) {
+            // 可见区域变大，提前多放出一段
+            extra = Math.max(0, hiddenBelow - growStep);
+        } else {
+            // 可见区域变小时等停靠后再收回
+            return;
+        }
+        mTargetExtraPadding = extra;
+        if (!inLayout) {
+            setExtraPadding(target, extra);
+        } else if (extra != mExtraPadding && !mApplyPosted) {
+            mApplyPosted = true;
+            target.post(mApplyRunnable);
+        }
+    }
+
+    /**
+     * 恢复列表原来的内边距
+     */
+    void release() {
+        final View target = mTargetRef == null ? null : mTargetRef.get();
+        if (target != null) {
+            if (mApplyPosted) {
+                target.removeCallbacks(mApplyRunnable);
+            }
+            setExtraPadding(target, 0);
+        }
+        mApplyPosted = false;
+        mTargetRef = null;
+        mExtraPadding = 0;
+        mTargetExtraPadding = 0;
+    }
+
+    private void setExtraPadding(View target, int extra) {
+        if (extra == mExtraPadding) {
+            return;
+        }
+        mExtraPadding = extra;
+        target.setPadding(target.getPaddingLeft(), target.getPaddingTop(), target.getPaddingRight(),
+                mBasePadding + extra);
+    }
+}
@@ -0,0 +1,89 @@
+package com.githang.behavior;
+
+import android.app.Activity;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * 检查预热后layout和拖动时不再分配内存。
+ * 统计的是多次执行的总分配，除以次数后为0说明每次执行都没有产生垃圾
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-09
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(qualifiers = "w360dp-h640dp-xxhdpi")
+public class AllocationTest {
+
+    private static final int WARM_UP = 20;
+    private static final int PASSES = 200;
+
+    private SheetFixture mFixture;
+
+    private final int[] mConsumed = new int[2];
+
+    @Before
+    public void setUp() {
+        assumeTrue("Thread allocation counting is not supported", SheetFixture.allocatedBytes() >= 0);
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        mFixture = new SheetFixture(activity);
+        mFixture.behavior.setState(ScrollLayoutBehavior.STATE_HALF_EXPANDED);
+        mFixture.layout();
+        mFixture.settle();
+    }
+
+    private void layoutPass() {
+        mFixture.behavior.onLayoutChild(mFixture.parent, mFixture.sheet, ViewCompat.LAYOUT_DIRECTION_LTR);
+    }
+
+    /**
+     * 在半展开位置附近上下拖动一帧，不会切换展开内容的显示
+     */
+    private void dragPass(int i) {
+        final View list = mFixture.scrollingChild;
+        mConsumed[0] = 0;
+        mConsumed[1] = 0;
+        mFixture.behavior.onNestedPreScroll(mFixture.parent, mFixture.sheet, list, 0,
+                i % 2 == 0 ? 10 : -10, mConsumed, ViewCompat.TYPE_TOUCH);
+    }
+
+    @Test
+    public void layoutPassDoesNotAllocate() {
+        for (int i = 0; i < WARM_UP; i++) {
+            layoutPass();
+        }
+        final long before = SheetFixture.allocatedBytes();
+        for (int i = 0; i < PASSES; i++) {
+            layoutPass();
+        }
+        final long allocated = SheetFixture.allocatedBytes() - before;
+        assertEquals("bytes per layout pass, total " + allocated, 0, allocated / PASSES);
+    }
+
+    @Test
+    public void dragDoesNotAllocate() {
+        final View list = mFixture.scrollingChild;
+        mFixture.behavior.onStartNestedScroll(mFixture.parent, mFixture.sheet, mFixture.sheet, list,
+                ViewCompat.SCROLL_AXIS_VERTICAL, ViewCompat.TYPE_TOUCH);
+        for (int i = 0; i < WARM_UP; i++) {
+            dragPass(i);
+        }
+        final long before = SheetFixture.allocatedBytes();
+        for (int i = 0; i < PASSES; i++) {
+            dragPass(i);
+        }
+        final long allocated = SheetFixture.allocatedBytes() - before;
+        assertEquals(ScrollLayoutBehavior.STATE_DRAGGING, mFixture.behavior.getState());
+        assertEquals("bytes per drag frame, total " + allocated, 0, allocated / PASSES);
+    }
+}
@@ -0,0 +1,63 @@
+package com.githang.behavior;
+
+import android.app.Activity;
+import android.support.design.widget.CoordinatorLayout;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * 检查behavior_belowTo指定的View移动时，全展开的布局跟随移动而不重新layout
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-10
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(qualifiers = "w360dp-h640dp-xxhdpi")
+public class BelowToTest {
+
+    private static final int HEADER_HEIGHT = 300;
+
+    private SheetFixture mFixture;
+    private View mHeader;
+
+    @Before
+    public void setUp() {
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        mFixture = new SheetFixture(activity, SheetFixture.attributes()
+                .addAttribute(R.attr.behavior_initialState, "fullExpanded")
+                .addAttribute(R.attr.behavior_belowTo, "@android:id/title")
+                .build());
+        mHeader = new View(activity);
+        mHeader.setId(android.R.id.title);
+        mFixture.parent.addView(mHeader, new CoordinatorLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, HEADER_HEIGHT));
+        mFixture.layout();
+        mFixture.layoutIfNeeded();
+    }
+
+    @Test
+    public void fullExpandedSheetFollowsTheBelowToView() {
+        assertEquals(ScrollLayoutBehavior.STATE_FULL_EXPANDED, mFixture.behavior.getState());
+        assertEquals(HEADER_HEIGHT, mFixture.getSheetTop());
+        final int layoutPasses = mFixture.sheet.layoutPasses;
+
+        ViewCompat.offsetTopAndBottom(mHeader, -100);
+        mFixture.parent.dispatchDependentViewsChanged(mHeader);
+
+        assertEquals(HEADER_HEIGHT - 100, mFixture.getSheetTop());
+        assertEquals(ScrollLayoutBehavior.STATE_FULL_EXPANDED, mFixture.behavior.getState());
+        assertEquals(layoutPasses, mFixture.sheet.layoutPasses);
+        assertFalse(mFixture.parent.isLayoutRequested());
+    }
+}
@@ -0,0 +1,104 @@
+package com.githang.behavior;
+
+import android.app.Activity;
+import android.util.AttributeSet;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.githang.behavior.SheetFixture.COLLAPSED_HEIGHT;
+import static com.githang.behavior.SheetFixture.FRAME_TIME;
+import static com.githang.behavior.SheetFixture.HALF_EXPANDED_SPACE;
+import static com.githang.behavior.SheetFixture.HEIGHT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 检查模拟拖动在同一帧内合并移动，并按手指拖动的限制和吸附规则停靠
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-08
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(qualifiers = "w360dp-h640dp-xxhdpi")
+public class FakeDragTest {
+
+    private SheetFixture mFixture;
+    private SheetFixture.Sheet mSheet;
+    private ScrollLayoutBehavior<SheetFixture.Sheet> mBehavior;
+    private int mSlideCount;
+
+    @Before
+    public void setUp() {
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        final AttributeSet attrs = SheetFixture.attributes()
+                .addAttribute(R.attr.behavior_initialState, "collapsed")
+                .build();
+        mFixture = new SheetFixture(activity, attrs);
+        mSheet = mFixture.sheet;
+        mBehavior = mFixture.behavior;
+        mFixture.layout();
+        mBehavior.setScrollLayoutCallback(new ScrollLayoutBehavior.ScrollLayoutCallback() {
+            @Override
+            public void onStateChanged(ViewGroup scrollLayout, int oldState, int newState) {
+            }
+
+            @Override
+            public void onSlide(ViewGroup scrollLayout, ScrollLayoutBehavior behavior, int position) {
+                mSlideCount++;
+            }
+        });
+    }
+
+    @Test
+    public void dragsInOneFrameAreCoalesced() {
+        final int collapsedTop = HEIGHT - COLLAPSED_HEIGHT;
+        assertTrue(mBehavior.beginFakeDrag());
+        assertEquals(ScrollLayoutBehavior.STATE_DRAGGING, mBehavior.getState());
+        mBehavior.fakeDragBy(-100);
+        mBehavior.fakeDragBy(-50.5f);
+        mBehavior.fakeDragBy(-49.5f);
+        assertEquals(collapsedTop, mSheet.getTop());
+        assertEquals(0, mSlideCount);
+
+        mFixture.advance(FRAME_TIME);
+        assertEquals(collapsedTop - 200, mSheet.getTop());
+        assertEquals(1, mSlideCount);
+    }
+
+    @Test
+    public void dragIsClampedLikeARealDrag() {
+        assertTrue(mBehavior.beginFakeDrag());
+        mBehavior.fakeDragBy(500);
+        mFixture.advance(FRAME_TIME);
+        assertEquals(HEIGHT - COLLAPSED_HEIGHT, mSheet.getTop());
+        mBehavior.fakeDragBy(-HEIGHT * 2);
+        mFixture.advance(FRAME_TIME);
+        assertEquals(0, mSheet.getTop());
+        mBehavior.endFakeDrag(0);
+        assertFalse(mBehavior.isFakeDragging());
+        assertEquals(ScrollLayoutBehavior.STATE_FULL_EXPANDED, mBehavior.getState());
+    }
+
+    @Test
+    public void endFakeDragSnapsToNearestAnchor() {
+        assertTrue(mBehavior.beginFakeDrag());
+        mBehavior.fakeDragBy(HALF_EXPANDED_SPACE + 50 - (HEIGHT - COLLAPSED_HEIGHT));
+        mBehavior.endFakeDrag(0);
+        assertEquals(ScrollLayoutBehavior.STATE_SETTLING, mBehavior.getState());
+        mFixture.settle();
+        assertEquals(ScrollLayoutBehavior.STATE_HALF_EXPANDED, mBehavior.getState());
+        assertEquals(HALF_EXPANDED_SPACE, mSheet.getTop());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void fakeDragByWithoutBeginThrows() {
+        mBehavior.fakeDragBy(10);
+    }
+}
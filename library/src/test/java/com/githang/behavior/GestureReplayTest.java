@@ -0,0 +1,153 @@
+package com.githang.behavior;
+
+import android.app.Activity;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * 重放src/test/resources/gestures/synthetic中的手势，检查最终状态、回调序列、layout次数及内存分配。
+ * 每个手势的回调序列概要保存在同名的.callbacks文件中。
+ * 这些轨迹是按1080x1920的坐标合成的，不是在设备上录制的，只能发现behavior对这几种输入的处理变化；
+ * 设备上的手势可以用{@link GestureRecorder}录制后用{@link GestureTrace#write}保存，作为新的用例加入
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-06
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(qualifiers = "w360dp-h640dp-xxhdpi")
+public class GestureReplayTest {
+
+    private static final String[] SYNTHETIC_CORPUS = {"fling_up", "slow_drag", "multi_touch", "nested_list_fling"};
+
+    /**
+     * 预热后每个手势在behavior回调中允许分配的字节数，逐帧产生垃圾时会超出
+     */
+    private static final long ALLOCATION_BUDGET_PER_GESTURE = 4 * 1024;
+
+    private GestureReplayer mReplayer;
+
+    @Before
+    public void setUp() {
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        mReplayer = new GestureReplayer(activity);
+    }
+
+    private GestureReplayer.Result replay(String name) throws IOException {
+        final InputStream in = open(name + ".gesture");
+        final GestureTrace trace;
+        try {
+            trace = GestureTrace.read(new InputStreamReader(in, "UTF-8"));
+        } finally {
+            in.close();
+        }
+        final GestureReplayer.Result result = mReplayer.replay(trace);
+        assertResting(result);
+        assertEquals(name + " callbacks changed: " + result, readOutline(name), result.outline);
+        return result;
+    }
+
+    private InputStream open(String fileName) {
+        final InputStream in = getClass().getClassLoader().getResourceAsStream("gestures/synthetic/" + fileName);
+        assertNotNull("missing " + fileName, in);
+        return in;
+    }
+
+    /**
+     * 读取期望的回调序列概要，每行一项，忽略空行和#开头的注释
+     */
+    private String readOutline(String name) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(open(name + ".callbacks"), "UTF-8"));
+        final StringBuilder builder = new StringBuilder();
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (builder.length() > 0) {
+                    builder.append(", ");
+                }
+                builder.append(line);
+            }
+        } finally {
+            reader.close();
+        }
+        return builder.toString();
+    }
+
+    private void assertResting(GestureReplayer.Result result) {
+        assertTrue("sheet did not come to rest: " + result,
+                result.finalState != ScrollLayoutBehavior.STATE_DRAGGING
+                        && result.finalState != ScrollLayoutBehavior.STATE_SETTLING);
+        final int index = mReplayer.mBehavior.getAnchorIndex();
+        assertTrue("resting state has no anchor: " + result, index >= 0);
+        assertEquals(mReplayer.mBehavior.getAnchorTop(index), result.finalTop);
+    }
+
+    @Test
+    public void flingUpFromCollapsedReachesFullExpanded() throws IOException {
+        final GestureReplayer.Result result = replay("fling_up");
+        assertEquals(ScrollLayoutBehavior.STATE_FULL_EXPANDED, result.finalState);
+        assertEquals(0, result.finalTop);
+    }
+
+    @Test
+    public void slowDragSnapsToNearestAnchor() throws IOException {
+        final GestureReplayer.Result result = replay("slow_drag");
+        assertEquals(ScrollLayoutBehavior.STATE_HALF_EXPANDED, result.finalState);
+        assertEquals(SheetFixture.HALF_EXPANDED_SPACE, result.finalTop);
+    }
+
+    @Test
+    public void secondPointerTakesOverTheDrag() throws IOException {
+        final GestureReplayer.Result result = replay("multi_touch");
+        // 第一根手指抬起时不松开面板，第二根手指的上甩把面板带到全展开
+        assertEquals(ScrollLayoutBehavior.STATE_FULL_EXPANDED, result.finalState);
+        assertEquals(0, result.finalTop);
+    }
+
+    @Test
+    public void nestedListFlingCarriesSheetToFullExpanded() throws IOException {
+        final GestureReplayer.Result result = replay("nested_list_fling");
+        assertEquals(ScrollLayoutBehavior.STATE_FULL_EXPANDED, result.finalState);
+        assertEquals(0, result.finalTop);
+    }
+
+    @Test
+    public void corpusStaysWithinLayoutBudget() throws IOException {
+        for (String name : SYNTHETIC_CORPUS) {
+            final GestureReplayer.Result result = replay(name);
+            // 拖动和沉降不应引起逐帧的layout，只有展开内容显示时的少量layout
+            assertTrue(name + " laid out too often: " + result, result.layoutPasses < 10);
+        }
+    }
+
+    @Test
+    public void corpusStaysWithinAllocationBudget() throws IOException {
+        assumeTrue("Thread allocation counting is not supported", SheetFixture.allocatedBytes() >= 0);
+        // 第一次重放会加载类和创建VelocityTracker等对象，不计入
+        for (String name : SYNTHETIC_CORPUS) {
+            replay(name);
+        }
+        for (String name : SYNTHETIC_CORPUS) {
+            final GestureReplayer.Result result = replay(name);
+            assertTrue(name + " allocated too much: " + result, result.allocatedBytes <= ALLOCATION_BUDGET_PER_GESTURE);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.githang.behavior;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.support.design.widget.CoordinatorLayout;
+import android.support.v4.view.ViewCompat;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.List;
+
+/**
+ * 在Robolectric中把{@link GestureTrace}重放到{@link ScrollLayoutBehavior}上。
+ * 按CoordinatorLayout的分发方式调用behavior的触摸和嵌套滑动回调，记录回调序列、layout次数及behavior回调中的内存分配。
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-06
+ */
+class GestureReplayer {
+
+    private static final int LOG_STATE = 1;
+    private static final int LOG_SLIDE = 2;
+    private static final int LOG_CAPACITY = 8192;
+
+    final SheetFixture mFixture;
+    private final CoordinatorLayout mParent;
+    private final SheetFixture.Sheet mSheet;
+    private final View mList;
+    final ScrollLayoutBehavior<SheetFixture.Sheet> mBehavior;
+
+    /**
+     * 回调序列，每项占两个int：类型和数值（状态为旧状态*16+新状态），预先分配避免影响分配统计
+     */
+    private final int[] mLog = new int[LOG_CAPACITY * 2];
+    private int mLogSize;
+
+    private int mLayoutPasses;
+
+    private final int[] mConsumed = new int[2];
+
+    static class Result {
+        int finalState;
+        int finalTop;
+        int layoutPasses;
+        /**
+         * 各步骤调用behavior时当前线程分配的字节数，不包括步骤之间推进时钟、layout及松手后的沉降，
+         * JVM不支持统计时为-1
+         */
+        long allocatedBytes;
+        String callbacks;
+        /**
+         * 回调序列的概要，见{@link #formatOutline}
+         */
+        String outline;
+
+        @Override
+        public String toString() {
+            return "Result{finalState=" + finalState + ", finalTop=" + finalTop
+                    + ", layoutPasses=" + layoutPasses + ", allocatedBytes=" + allocatedBytes
+                    + ", outline=[" + outline + "], callbacks=[" + callbacks + "]}";
+        }
+    }
+
+    GestureReplayer(Activity activity) {
+        mFixture = new SheetFixture(activity);
+        mFixture.attach();
+        mParent = mFixture.parent;
+        mSheet = mFixture.sheet;
+        mList = mFixture.scrollingChild;
+        mBehavior = mFixture.behavior;
+
+        mBehavior.setScrollLayoutCallback(new ScrollLayoutBehavior.ScrollLayoutCallback() {
+            @Override
+            public void onStateChanged(ViewGroup scrollLayout, int oldState, int newState) {
+                log(LOG_STATE, oldState * 16 + newState);
+            }
+
+            @Override
+            public void onSlide(ViewGroup scrollLayout, ScrollLayoutBehavior behavior, int position) {
+                log(LOG_SLIDE, position);
+            }
+        });
+        mBehavior.setGestureMetricsListener(new ScrollLayoutBehavior.GestureMetricsListener() {
+            @Override
+            public void onGestureFinished(ViewGroup scrollLayout, GestureMetrics metrics) {
+                mLayoutPasses += metrics.getLayoutPasses();
+            }
+        });
+        mFixture.layoutIfNeeded();
+        mBehavior.showCollapsed();
+    }
+
+    private void log(int kind, int value) {
+        if (mLogSize < LOG_CAPACITY) {
+            mLog[mLogSize * 2] = kind;
+            mLog[mLogSize * 2 + 1] = value;
+            mLogSize++;
+        }
+    }
+
+    Result replay(GestureTrace trace) {
+        if (trace.getInitialState() != SheetEngine.NO_STATE) {
+            //noinspection WrongConstant
+            mBehavior.setState(trace.getInitialState());
+            mFixture.advance(SheetFixture.FRAME_TIME);
+            mFixture.settle();
+        }
+        final List<GestureTrace.Step> steps = trace.getSteps();
+        final MotionEvent[] events = obtainEvents(steps);
+        mLogSize = 0;
+        mLayoutPasses = 0;
+        final int startTop = mFixture.getSheetTop();
+
+        long allocated = SheetFixture.allocatedBytes() < 0 ? -1 : 0;
+        boolean intercepted = false;
+        for (int i = 0; i < steps.size(); i++) {
+            final GestureTrace.Step step = steps.get(i);
+            mFixture.advance(step.delay);
+            final long before = SheetFixture.allocatedBytes();
+            switch (step.kind) {
+                case GestureTrace.KIND_TOUCH:
+                    final MotionEvent event = events[i];
+                    if (step.action == GestureTrace.ACTION_DOWN) {
+                        intercepted = false;
+                    }
+                    if (!intercepted) {
+                        intercepted = mBehavior.onInterceptTouchEvent(mParent, mSheet, event);
+                    }
+                    if (intercepted) {
+                        mBehavior.onTouchEvent(mParent, mSheet, event);
+                    }
+                    break;
+                case GestureTrace.KIND_NESTED_START:
+                    mBehavior.onStartNestedScroll(mParent, mSheet, mSheet, mList,
+                            ViewCompat.SCROLL_AXIS_VERTICAL, step.type);
+                    break;
+                case GestureTrace.KIND_NESTED_PRE_SCROLL:
+                    mConsumed[0] = 0;
+                    mConsumed[1] = 0;
+                    mBehavior.onNestedPreScroll(mParent, mSheet, mList, 0, step.dy, mConsumed, step.type);
+                    // 剩余的距离由列表自己滚动
+                    mList.scrollBy(0, step.dy - mConsumed[1]);
+                    break;
+                case GestureTrace.KIND_NESTED_STOP:
+                    mBehavior.onStopNestedScroll(mParent, mSheet, mList, step.type);
+                    break;
+                case GestureTrace.KIND_NESTED_PRE_FLING:
+                    mBehavior.onNestedPreFling(mParent, mSheet, mList, 0, step.velocity);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown step kind: " + step.kind);
+            }
+            if (allocated >= 0) {
+                allocated += SheetFixture.allocatedBytes() - before;
+            }
+        }
+        mFixture.settle();
+
+        for (MotionEvent event : events) {
+            if (event != null) {
+                event.recycle();
+            }
+        }
+        final Result result = new Result();
+        result.finalState = mBehavior.getState();
+        result.finalTop = mFixture.getSheetTop();
+        result.layoutPasses = mLayoutPasses;
+        result.allocatedBytes = allocated;
+        result.callbacks = formatLog();
+        result.outline = formatOutline(startTop);
+        return result;
+    }
+
+    /**
+     * 重放前创建好所有的MotionEvent，事件时间按当前时钟加上各事件的延迟计算
+     */
+    private static MotionEvent[] obtainEvents(List<GestureTrace.Step> steps) {
+        final MotionEvent[] events = new MotionEvent[steps.size()];
+        long time = SystemClock.uptimeMillis();
+        long downTime = time;
+        for (int i = 0; i < steps.size(); i++) {
+            final GestureTrace.Step step = steps.get(i);
+            time += step.delay;
+            if (step.kind != GestureTrace.KIND_TOUCH) {
+                continue;
+            }
+            if (step.action == GestureTrace.ACTION_DOWN) {
+                downTime = time;
+            }
+            final int count = step.pointerIds.length;
+            final MotionEvent.PointerProperties[] properties = new MotionEvent.PointerProperties[count];
+            final MotionEvent.PointerCoords[] coords = new MotionEvent.PointerCoords[count];
+            for (int p = 0; p < count; p++) {
+                properties[p] = new MotionEvent.PointerProperties();
+                properties[p].id = step.pointerIds[p];
+                properties[p].toolType = MotionEvent.TOOL_TYPE_FINGER;
+                coords[p] = new MotionEvent.PointerCoords();
+                coords[p].x = step.xs[p];
+                coords[p].y = step.ys[p];
+                coords[p].pressure = 1;
+                coords[p].size = 1;
+            }
+            final int action = step.action | (step.actionIndex << MotionEvent.ACTION_POINTER_INDEX_SHIFT);
+            events[i] = MotionEvent.obtain(downTime, time, action, count, properties, coords,
+                    0, 0, 1, 1, 0, 0, 0, 0);
+        }
+        return events;
+    }
+
+    /**
+     * 回调序列的概要：状态变化写作“旧状态->新状态”，连续朝同一方向的onSlide合并为一项up或down，
+     * 位置没有变化的onSlide忽略。每项之间用“, ”分隔
+     */
+    private String formatOutline(int startTop) {
+        final StringBuilder builder = new StringBuilder();
+        String last = null;
+        int top = startTop;
+        for (int i = 0; i < mLogSize; i++) {
+            final int value = mLog[i * 2 + 1];
+            final String item;
+            if (mLog[i * 2] == LOG_STATE) {
+                item = stateName(value / 16) + "->" + stateName(value % 16);
+            } else if (value == top) {
+                continue;
+            } else {
+                item = value < top ? "up" : "down";
+                top = value;
+                if (item.equals(last)) {
+                    continue;
+                }
+            }
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            builder.append(item);
+            last = item;
+        }
+        return builder.toString();
+    }
+
+    private static String stateName(int state) {
+        switch (state) {
+            case ScrollLayoutBehavior.STATE_HIDDEN:
+                return "hidden";
+            case ScrollLayoutBehavior.STATE_COLLAPSED:
+                return "collapsed";
+            case ScrollLayoutBehavior.STATE_HALF_EXPANDED:
+                return "half_expanded";
+            case ScrollLayoutBehavior.STATE_FULL_EXPANDED:
+                return "full_expanded";
+            case ScrollLayoutBehavior.STATE_DRAGGING:
+                return "dragging";
+            case ScrollLayoutBehavior.STATE_SETTLING:
+                return "settling";
+            case ScrollLayoutBehavior.STATE_ANCHORED:
+                return "anchored";
+            default:
+                return String.valueOf(state);
+        }
+    }
+
+    private String formatLog() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < mLogSize; i++) {
+            final int value = mLog[i * 2 + 1];
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            if (mLog[i * 2] == LOG_STATE) {
+                builder.append("state ").append(value / 16).append("->").append(value % 16);
+            } else {
+                builder.append("slide ").append(value);
+            }
+        }
+        return builder.toString();
+    }
+}
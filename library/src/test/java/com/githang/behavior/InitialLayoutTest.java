@@ -0,0 +1,63 @@
+package com.githang.behavior;
+
+import android.app.Activity;
+import android.util.AttributeSet;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.githang.behavior.SheetFixture.COLLAPSED_HEIGHT;
+import static com.githang.behavior.SheetFixture.HEIGHT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * 检查设置了初始状态或在layout前调用showCollapsed时，第一次layout就放到目标位置，不需要再次layout
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-08
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(qualifiers = "w360dp-h640dp-xxhdpi")
+public class InitialLayoutTest {
+
+    private Activity mActivity;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.setupActivity(Activity.class);
+    }
+
+    private static void assertCollapsedInOnePass(SheetFixture fixture) {
+        assertEquals(1, fixture.sheet.layoutPasses);
+        assertFalse(fixture.parent.isLayoutRequested());
+        // 展开内容在measure之前就已隐藏，布局没有遗留的layout请求
+        assertFalse(fixture.sheet.isLayoutRequested());
+        assertEquals(View.GONE, fixture.scrollingChild.getVisibility());
+        assertEquals(ScrollLayoutBehavior.STATE_COLLAPSED, fixture.behavior.getState());
+        assertEquals(HEIGHT - COLLAPSED_HEIGHT, fixture.sheet.getTop());
+    }
+
+    @Test
+    public void initialStateFromXmlIsAppliedInFirstLayout() {
+        final AttributeSet attrs = SheetFixture.attributes()
+                .addAttribute(R.attr.behavior_initialState, "collapsed")
+                .build();
+        final SheetFixture fixture = new SheetFixture(mActivity, attrs);
+        fixture.layout();
+        assertCollapsedInOnePass(fixture);
+    }
+
+    @Test
+    public void showCollapsedBeforeLayoutIsAppliedInFirstLayout() {
+        final SheetFixture fixture = new SheetFixture(mActivity);
+        fixture.behavior.showCollapsed();
+        fixture.layout();
+        assertCollapsedInOnePass(fixture);
+    }
+}
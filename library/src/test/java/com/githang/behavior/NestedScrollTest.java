@@ -0,0 +1,161 @@
+package com.githang.behavior;
+
+import android.app.Activity;
+import android.support.v4.view.ViewCompat;
+import android.util.AttributeSet;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.githang.behavior.SheetFixture.COLLAPSED_HEIGHT;
+import static com.githang.behavior.SheetFixture.HALF_EXPANDED_SPACE;
+import static com.githang.behavior.SheetFixture.HEIGHT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 按嵌套滑动子View的分发顺序直接调用behavior的嵌套滑动回调，检查触摸滑动与惯性滑动在面板和列表之间的传递
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-09
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(qualifiers = "w360dp-h640dp-xxhdpi")
+public class NestedScrollTest {
+
+    private static final int COLLAPSED_TOP = HEIGHT - COLLAPSED_HEIGHT;
+
+    private SheetFixture mFixture;
+    private ScrollLayoutBehavior<SheetFixture.Sheet> mBehavior;
+    private View mList;
+
+    private final int[] mConsumed = new int[2];
+
+    @Before
+    public void setUp() {
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        final AttributeSet attrs = SheetFixture.attributes()
+                .addAttribute(R.attr.behavior_scrollResetMode, "never")
+                .build();
+        mFixture = new SheetFixture(activity, attrs);
+        mBehavior = mFixture.behavior;
+        mList = mFixture.scrollingChild;
+    }
+
+    private void start(int type) {
+        assertTrue(mBehavior.onStartNestedScroll(mFixture.parent, mFixture.sheet, mFixture.sheet, mList,
+                ViewCompat.SCROLL_AXIS_VERTICAL, type));
+    }
+
+    /**
+     * 先交给面板，剩余的距离由列表自己滚动
+     *
+     * @return 面板消费的距离
+     */
+    private int preScroll(int dy, int type) {
+        mConsumed[0] = 0;
+        mConsumed[1] = 0;
+        mBehavior.onNestedPreScroll(mFixture.parent, mFixture.sheet, mList, 0, dy, mConsumed, type);
+        mList.scrollBy(0, dy - mConsumed[1]);
+        // 展开内容显示后需要layout才有高度
+        mFixture.layoutIfNeeded();
+        return mConsumed[1];
+    }
+
+    private void stop(int type) {
+        mBehavior.onStopNestedScroll(mFixture.parent, mFixture.sheet, mList, type);
+    }
+
+    @Test
+    public void touchScrollDragsSheetAndSnapsOnStop() {
+        mBehavior.showCollapsed();
+        mFixture.layout();
+
+        start(ViewCompat.TYPE_TOUCH);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(50, preScroll(50, ViewCompat.TYPE_TOUCH));
+        }
+        assertEquals(ScrollLayoutBehavior.STATE_DRAGGING, mBehavior.getState());
+        assertEquals(COLLAPSED_TOP - 500, mFixture.getSheetTop());
+        assertEquals(0, mList.getScrollY());
+
+        stop(ViewCompat.TYPE_TOUCH);
+        mFixture.settle();
+        assertEquals(ScrollLayoutBehavior.STATE_HALF_EXPANDED, mBehavior.getState());
+        assertEquals(HALF_EXPANDED_SPACE, mFixture.getSheetTop());
+    }
+
+    @Test
+    public void touchScrollPastFullExpandedScrollsTheList() {
+        mBehavior.showCollapsed();
+        mFixture.layout();
+
+        start(ViewCompat.TYPE_TOUCH);
+        final int top = COLLAPSED_TOP - 1000;
+        assertEquals(1000, preScroll(1000, ViewCompat.TYPE_TOUCH));
+        assertEquals(top, preScroll(1000, ViewCompat.TYPE_TOUCH));
+        assertEquals(ScrollLayoutBehavior.STATE_FULL_EXPANDED, mBehavior.getState());
+        assertEquals(0, mFixture.getSheetTop());
+        // 同一次移动中面板用不完的距离交给列表
+        assertEquals(1000 - top, mList.getScrollY());
+        stop(ViewCompat.TYPE_TOUCH);
+        assertEquals(ScrollLayoutBehavior.STATE_FULL_EXPANDED, mBehavior.getState());
+    }
+
+    @Test
+    public void listFlingCarriesItsMomentumIntoTheSheet() {
+        mBehavior.setState(ScrollLayoutBehavior.STATE_FULL_EXPANDED);
+        mFixture.layout();
+        mList.scrollTo(0, 300);
+        assertEquals(300, mList.getScrollY());
+
+        // 手指在列表上向下滑动，列表自己滚动
+        start(ViewCompat.TYPE_TOUCH);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, preScroll(-30, ViewCompat.TYPE_TOUCH));
+        }
+        stop(ViewCompat.TYPE_TOUCH);
+        assertEquals(ScrollLayoutBehavior.STATE_FULL_EXPANDED, mBehavior.getState());
+        // 面板不消费惯性，由列表以TYPE_NON_TOUCH分发
+        assertFalse(mBehavior.onNestedPreFling(mFixture.parent, mFixture.sheet, mList, 0, -4000));
+
+        start(ViewCompat.TYPE_NON_TOUCH);
+        final int[] flingDys = {-60, -60, -60, -60, -60, -60, -50, -40, -30, -20, -10};
+        int sheetMoved = 0;
+        for (int dy : flingDys) {
+            sheetMoved += preScroll(dy, ViewCompat.TYPE_NON_TOUCH);
+        }
+        assertEquals(0, mList.getScrollY());
+        assertTrue(sheetMoved < 0);
+        assertEquals(-sheetMoved, mFixture.getSheetTop());
+        // 惯性带动的移动不是拖动
+        assertEquals(ScrollLayoutBehavior.STATE_SETTLING, mBehavior.getState());
+
+        stop(ViewCompat.TYPE_NON_TOUCH);
+        mFixture.settle();
+        assertTrue(mFixture.isResting());
+        // 按最后的移动方向继续向下吸附
+        assertTrue(mFixture.getSheetTop() >= HALF_EXPANDED_SPACE);
+    }
+
+    @Test
+    public void nonTouchScrollStoppedOnAnchorRestsThere() {
+        mBehavior.setState(ScrollLayoutBehavior.STATE_HALF_EXPANDED);
+        mFixture.layout();
+
+        start(ViewCompat.TYPE_NON_TOUCH);
+        assertEquals(50, preScroll(50, ViewCompat.TYPE_NON_TOUCH));
+        assertEquals(-50, preScroll(-50, ViewCompat.TYPE_NON_TOUCH));
+        assertEquals(HALF_EXPANDED_SPACE, mFixture.getSheetTop());
+        stop(ViewCompat.TYPE_NON_TOUCH);
+        mFixture.settle();
+        assertEquals(ScrollLayoutBehavior.STATE_HALF_EXPANDED, mBehavior.getState());
+        assertEquals(HALF_EXPANDED_SPACE, mFixture.getSheetTop());
+    }
+}
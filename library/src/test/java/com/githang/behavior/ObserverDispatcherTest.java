@@ -0,0 +1,127 @@
+package com.githang.behavior;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static com.githang.behavior.ScrollLayoutBehavior.STATE_COLLAPSED;
+import static com.githang.behavior.ScrollLayoutBehavior.STATE_HALF_EXPANDED;
+import static com.githang.behavior.ScrollLayoutBehavior.STATE_SETTLING;
+import static com.githang.behavior.SheetFixture.FRAME_TIME;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 检查每帧分发及Executor分发合并为最新的状态和位置，移除后不再回调
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-10
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ObserverDispatcherTest {
+
+    private ObserverDispatcher mDispatcher;
+    private final List<String> mLog = new ArrayList<>();
+    private final List<Runnable> mTasks = new ArrayList<>();
+
+    private final ScrollLayoutBehavior.ScrollLayoutObserver mObserver = new ScrollLayoutBehavior.ScrollLayoutObserver() {
+        @Override
+        public void onStateChanged(int oldState, int newState) {
+            mLog.add("state " + oldState + "->" + newState);
+        }
+
+        @Override
+        public void onSlide(int position) {
+            mLog.add("slide " + position);
+        }
+    };
+
+    private final Executor mExecutor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mTasks.add(command);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        mDispatcher = new ObserverDispatcher();
+    }
+
+    /**
+     * 从收起开始沉降到半展开，中间移动两次
+     */
+    private void settleToHalfExpanded() {
+        mDispatcher.dispatchStateChanged(STATE_COLLAPSED, STATE_SETTLING);
+        mDispatcher.dispatchSlide(1700);
+        mDispatcher.dispatchSlide(1600);
+        mDispatcher.dispatchStateChanged(STATE_SETTLING, STATE_HALF_EXPANDED);
+    }
+
+    private void runTasks() {
+        final List<Runnable> tasks = new ArrayList<>(mTasks);
+        mTasks.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+
+    @Test
+    public void frameModeDeliversTheLatestValuesOncePerFrame() {
+        mDispatcher.add(mObserver, ScrollLayoutBehavior.DISPATCH_FRAME, null, STATE_COLLAPSED, 1720);
+        settleToHalfExpanded();
+        assertEquals(0, mLog.size());
+
+        ShadowLooper.idleMainLooper(FRAME_TIME, TimeUnit.MILLISECONDS);
+        assertEquals(2, mLog.size());
+        assertEquals("state " + STATE_COLLAPSED + "->" + STATE_HALF_EXPANDED, mLog.get(0));
+        assertEquals("slide 1600", mLog.get(1));
+
+        ShadowLooper.idleMainLooper(FRAME_TIME, TimeUnit.MILLISECONDS);
+        assertEquals(2, mLog.size());
+    }
+
+    @Test
+    public void frameModeStopsAfterRemove() {
+        mDispatcher.add(mObserver, ScrollLayoutBehavior.DISPATCH_FRAME, null, STATE_COLLAPSED, 1720);
+        settleToHalfExpanded();
+        mDispatcher.remove(mObserver);
+
+        ShadowLooper.idleMainLooper(FRAME_TIME, TimeUnit.MILLISECONDS);
+        assertEquals(0, mLog.size());
+    }
+
+    @Test
+    public void executorModeSubmitsOnceAndDeliversTheLatestValues() {
+        mDispatcher.add(mObserver, ScrollLayoutBehavior.DISPATCH_EXECUTOR, mExecutor, STATE_COLLAPSED, 1720);
+        settleToHalfExpanded();
+        assertEquals(1, mTasks.size());
+        assertEquals(0, mLog.size());
+
+        runTasks();
+        assertEquals(2, mLog.size());
+        assertEquals("state " + STATE_COLLAPSED + "->" + STATE_HALF_EXPANDED, mLog.get(0));
+        assertEquals("slide 1600", mLog.get(1));
+
+        mDispatcher.dispatchSlide(1500);
+        assertEquals(1, mTasks.size());
+        runTasks();
+        assertEquals("slide 1500", mLog.get(2));
+    }
+
+    @Test
+    public void executorModeSkipsSubmittedTaskAfterRemove() {
+        mDispatcher.add(mObserver, ScrollLayoutBehavior.DISPATCH_EXECUTOR, mExecutor, STATE_COLLAPSED, 1720);
+        settleToHalfExpanded();
+        mDispatcher.remove(mObserver);
+
+        runTasks();
+        assertEquals(0, mLog.size());
+    }
+}
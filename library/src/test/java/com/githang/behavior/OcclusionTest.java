@@ -0,0 +1,90 @@
+package com.githang.behavior;
+
+import android.app.Activity;
+import android.graphics.Rect;
+import android.support.design.widget.CoordinatorLayout;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.githang.behavior.SheetFixture.COLLAPSED_HEIGHT;
+import static com.githang.behavior.SheetFixture.FRAME_TIME;
+import static com.githang.behavior.SheetFixture.HALF_EXPANDED_SPACE;
+import static com.githang.behavior.SheetFixture.HEIGHT;
+import static com.githang.behavior.SheetFixture.WIDTH;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 检查布局裁剪到父布局内可见的部分，以及全展开时隐藏被盖住的兄弟View并在离开全展开时恢复
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-10
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(qualifiers = "w360dp-h640dp-xxhdpi")
+public class OcclusionTest {
+
+    private Activity mActivity;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.setupActivity(Activity.class);
+    }
+
+    private SheetFixture createFixture(String mode, String initialState) {
+        return new SheetFixture(mActivity, SheetFixture.attributes()
+                .addAttribute(R.attr.behavior_occlusionMode, mode)
+                .addAttribute(R.attr.behavior_initialState, initialState)
+                .build());
+    }
+
+    private static void settleTo(SheetFixture fixture, int state) {
+        fixture.behavior.setState(state);
+        fixture.advance(FRAME_TIME);
+        fixture.settle();
+        assertEquals(state, fixture.behavior.getState());
+    }
+
+    @Test
+    public void clipFollowsTheVisiblePart() {
+        final SheetFixture fixture = createFixture("clip", "collapsed");
+        fixture.layout();
+        assertEquals(new Rect(0, 0, WIDTH, COLLAPSED_HEIGHT), ViewCompat.getClipBounds(fixture.sheet));
+
+        settleTo(fixture, ScrollLayoutBehavior.STATE_HALF_EXPANDED);
+        assertEquals(new Rect(0, 0, WIDTH, HEIGHT - HALF_EXPANDED_SPACE), ViewCompat.getClipBounds(fixture.sheet));
+    }
+
+    @Test
+    public void coveredSiblingsAreHiddenOnlyWhileFullExpanded() {
+        final SheetFixture fixture = createFixture("siblings", "fullExpanded");
+        final View covered = new View(mActivity);
+        fixture.parent.addView(covered, 0, new CoordinatorLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        fixture.layout();
+        assertEquals(View.INVISIBLE, covered.getVisibility());
+
+        settleTo(fixture, ScrollLayoutBehavior.STATE_COLLAPSED);
+        assertEquals(View.VISIBLE, covered.getVisibility());
+    }
+
+    @Test
+    public void visibilityChangedByTheAppIsNotRestored() {
+        final SheetFixture fixture = createFixture("siblings", "fullExpanded");
+        final View covered = new View(mActivity);
+        fixture.parent.addView(covered, 0, new CoordinatorLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        fixture.layout();
+        covered.setVisibility(View.GONE);
+
+        settleTo(fixture, ScrollLayoutBehavior.STATE_COLLAPSED);
+        assertEquals(View.GONE, covered.getVisibility());
+    }
+}
@@ -0,0 +1,179 @@
+package com.githang.behavior;
+
+import android.app.Activity;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.support.v4.view.AbsSavedState;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.githang.behavior.SheetFixture.COLLAPSED_HEIGHT;
+import static com.githang.behavior.SheetFixture.HALF_EXPANDED_SPACE;
+import static com.githang.behavior.SheetFixture.HEIGHT;
+import static com.githang.behavior.SheetFixture.ITEM_HEIGHT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 检查保存的状态在重建后的第一次layout中直接恢复，不经过沉降，也不回调onSlide
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-08
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(qualifiers = "w360dp-h640dp-xxhdpi")
+public class SavedStateTest {
+
+    private Activity mActivity;
+
+    /**
+     * 一套布局及其behavior，重建时创建新的一套
+     */
+    private class Screen {
+        final SheetFixture fixture;
+        final SheetFixture.Sheet sheet;
+        final ScrollLayoutBehavior<SheetFixture.Sheet> behavior;
+        int slideCount;
+        int stateChangeCount;
+
+        Screen() {
+            this(null);
+        }
+
+        /**
+         * @param list 嵌套滑动的列表，为null时使用NestedScrollView；滚动重置方式使用默认的每次layout都重置
+         */
+        Screen(View list) {
+            fixture = new SheetFixture(mActivity, SheetFixture.attributes().build(), list);
+            sheet = fixture.sheet;
+            behavior = fixture.behavior;
+            behavior.setScrollLayoutCallback(new ScrollLayoutBehavior.ScrollLayoutCallback() {
+                @Override
+                public void onStateChanged(ViewGroup scrollLayout, int oldState, int newState) {
+                    stateChangeCount++;
+                }
+
+                @Override
+                public void onSlide(ViewGroup scrollLayout, ScrollLayoutBehavior behavior, int position) {
+                    slideCount++;
+                }
+            });
+        }
+
+        void layout() {
+            fixture.layout();
+        }
+
+        Parcelable save() {
+            final Parcelable state = behavior.onSaveInstanceState(fixture.parent, sheet);
+            final Parcel parcel = Parcel.obtain();
+            try {
+                parcel.writeParcelable(state, 0);
+                parcel.setDataPosition(0);
+                return parcel.readParcelable(getClass().getClassLoader());
+            } finally {
+                parcel.recycle();
+            }
+        }
+
+        void restore(Parcelable state) {
+            behavior.onRestoreInstanceState(fixture.parent, sheet, state);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.setupActivity(Activity.class);
+    }
+
+    private Screen recreate(Screen old) {
+        return recreate(old, new Screen());
+    }
+
+    private Screen recreate(Screen old, Screen screen) {
+        final Parcelable state = old.save();
+        screen.restore(state);
+        screen.layout();
+        assertFalse(screen.fixture.parent.isLayoutRequested());
+        assertEquals(0, screen.slideCount);
+        assertEquals(0, screen.stateChangeCount);
+        return screen;
+    }
+
+    @Test
+    public void fullExpandedAndScrollPositionSurviveRecreation() {
+        final Screen old = new Screen();
+        old.behavior.setState(ScrollLayoutBehavior.STATE_FULL_EXPANDED);
+        old.layout();
+        old.fixture.scrollingChild.scrollTo(0, 300);
+
+        final Screen screen = recreate(old);
+        assertEquals(ScrollLayoutBehavior.STATE_FULL_EXPANDED, screen.behavior.getState());
+        assertEquals(0, screen.sheet.getTop());
+        assertEquals(300, screen.fixture.scrollingChild.getScrollY());
+    }
+
+    @Test
+    public void recyclerViewPositionSurvivesRecreation() {
+        final Screen old = new Screen(SheetFixture.createRecyclerView(mActivity, new SheetFixture.ItemAdapter()));
+        old.behavior.setState(ScrollLayoutBehavior.STATE_FULL_EXPANDED);
+        old.layout();
+        old.fixture.scrollingChild.scrollBy(0, ITEM_HEIGHT * 20 + 50);
+        // RecyclerView的scrollY总是0，只能按第一个可见项恢复
+        assertEquals(0, old.fixture.scrollingChild.getScrollY());
+
+        final SheetFixture.ItemAdapter adapter = new SheetFixture.ItemAdapter();
+        final RecyclerView list = SheetFixture.createRecyclerView(mActivity, adapter);
+        final Screen screen = recreate(old, new Screen(list));
+        final LinearLayoutManager layoutManager = (LinearLayoutManager) list.getLayoutManager();
+        assertEquals(20, layoutManager.findFirstVisibleItemPosition());
+        assertEquals(-50, layoutManager.findViewByPosition(20).getTop());
+        // 在第一次layout中直接定位，不会先绑定第一屏
+        assertTrue(adapter.binds <= HEIGHT / ITEM_HEIGHT + 2);
+    }
+
+    @Test
+    public void settlingIsSavedAsItsTargetState() {
+        final Screen old = new Screen();
+        old.behavior.setState(ScrollLayoutBehavior.STATE_COLLAPSED);
+        old.layout();
+        old.behavior.setState(ScrollLayoutBehavior.STATE_HALF_EXPANDED);
+        assertEquals(ScrollLayoutBehavior.STATE_SETTLING, old.behavior.getState());
+
+        final Screen screen = recreate(old);
+        assertEquals(ScrollLayoutBehavior.STATE_HALF_EXPANDED, screen.behavior.getState());
+        assertEquals(HALF_EXPANDED_SPACE, screen.sheet.getTop());
+    }
+
+    @Test
+    public void settlingBeforeLayoutIsSavedUnchanged() {
+        final Screen old = new Screen();
+        old.restore(new ScrollLayoutBehavior.SavedState(AbsSavedState.EMPTY_STATE,
+                ScrollLayoutBehavior.STATE_SETTLING, 0, RecyclerViewScroll.NO_POSITION, 0));
+        assertEquals(0, old.behavior.getAnchorCount());
+
+        final ScrollLayoutBehavior.SavedState state = (ScrollLayoutBehavior.SavedState) old.save();
+        assertEquals(ScrollLayoutBehavior.STATE_SETTLING, state.state);
+    }
+
+    @Test
+    public void collapsedIsRestoredWithoutSettling() {
+        final Screen old = new Screen();
+        old.behavior.setState(ScrollLayoutBehavior.STATE_COLLAPSED);
+        old.layout();
+
+        final Screen screen = recreate(old);
+        assertEquals(ScrollLayoutBehavior.STATE_COLLAPSED, screen.behavior.getState());
+        assertEquals(HEIGHT - COLLAPSED_HEIGHT, screen.sheet.getTop());
+    }
+}
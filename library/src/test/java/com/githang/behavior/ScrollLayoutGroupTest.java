@@ -0,0 +1,121 @@
+package com.githang.behavior;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.support.v4.view.ViewCompat;
+import android.view.MotionEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.githang.behavior.SheetFixture.COLLAPSED_HEIGHT;
+import static com.githang.behavior.SheetFixture.FRAME_TIME;
+import static com.githang.behavior.SheetFixture.HEIGHT;
+import static com.githang.behavior.SheetFixture.WIDTH;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 检查同一组布局的互斥收起、层次提升及按下时只由最上层的布局处理触摸
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-10
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(qualifiers = "w360dp-h640dp-xxhdpi")
+public class ScrollLayoutGroupTest {
+
+    private static final float APP_TRANSLATION_Z = 2f;
+    private static final float OTHER_TRANSLATION_Z = 5f;
+
+    private SheetFixture mFirst;
+    private SheetFixture mSecond;
+    private ScrollLayoutGroup mGroup;
+
+    @Before
+    public void setUp() {
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        mFirst = new SheetFixture(activity, SheetFixture.attributes()
+                .addAttribute(R.attr.behavior_initialState, "collapsed")
+                .build());
+        mSecond = mFirst.addSheet(SheetFixture.attributes()
+                .addAttribute(R.attr.behavior_initialState, "collapsed")
+                .build());
+        mGroup = new ScrollLayoutGroup();
+        mGroup.addBehavior(mFirst.behavior);
+        mGroup.addBehavior(mSecond.behavior);
+        mFirst.attach();
+        mFirst.layout();
+    }
+
+    private void settleTo(SheetFixture fixture, int state) {
+        fixture.behavior.setState(state);
+        fixture.advance(FRAME_TIME);
+        fixture.settle();
+        assertEquals(state, fixture.behavior.getState());
+    }
+
+    @Test
+    public void expandingCollapsesTheOtherSheet() {
+        settleTo(mFirst, ScrollLayoutBehavior.STATE_HALF_EXPANDED);
+        settleTo(mSecond, ScrollLayoutBehavior.STATE_HALF_EXPANDED);
+        mFirst.settle();
+        assertEquals(ScrollLayoutBehavior.STATE_COLLAPSED, mFirst.behavior.getState());
+        assertEquals(HEIGHT - COLLAPSED_HEIGHT, mFirst.getSheetTop());
+    }
+
+    @Test
+    public void nonExclusiveGroupKeepsBothExpanded() {
+        mGroup.setExclusive(false);
+        settleTo(mFirst, ScrollLayoutBehavior.STATE_HALF_EXPANDED);
+        settleTo(mSecond, ScrollLayoutBehavior.STATE_HALF_EXPANDED);
+        mFirst.settle();
+        assertEquals(ScrollLayoutBehavior.STATE_HALF_EXPANDED, mFirst.behavior.getState());
+    }
+
+    @Test
+    public void raisingRestoresTheAppTranslationZ() {
+        ViewCompat.setTranslationZ(mFirst.sheet, APP_TRANSLATION_Z);
+        ViewCompat.setTranslationZ(mSecond.sheet, OTHER_TRANSLATION_Z);
+
+        settleTo(mFirst, ScrollLayoutBehavior.STATE_HALF_EXPANDED);
+        assertTrue(ViewCompat.getZ(mFirst.sheet) > ViewCompat.getZ(mSecond.sheet));
+
+        mGroup.removeBehavior(mFirst.behavior);
+        assertEquals(APP_TRANSLATION_Z, ViewCompat.getTranslationZ(mFirst.sheet), 0f);
+        assertEquals(OTHER_TRANSLATION_Z, ViewCompat.getTranslationZ(mSecond.sheet), 0f);
+    }
+
+    @Test
+    public void onlyTheTopmostSheetIsDragged() {
+        final int collapsedTop = HEIGHT - COLLAPSED_HEIGHT;
+        final float x = WIDTH / 2f;
+        final long downTime = SystemClock.uptimeMillis();
+        long time = downTime;
+        float y = collapsedTop + COLLAPSED_HEIGHT / 2f;
+        dispatch(downTime, time, MotionEvent.ACTION_DOWN, x, y);
+        for (int i = 0; i < 10; i++) {
+            time += FRAME_TIME;
+            y -= 30;
+            dispatch(downTime, time, MotionEvent.ACTION_MOVE, x, y);
+        }
+        dispatch(downTime, time, MotionEvent.ACTION_UP, x, y);
+        mFirst.settle();
+        mSecond.settle();
+
+        // 后加入的布局在上层，按下位置两个布局重叠时只由它处理
+        assertTrue(mSecond.getSheetTop() < collapsedTop);
+        assertEquals(ScrollLayoutBehavior.STATE_COLLAPSED, mFirst.behavior.getState());
+        assertEquals(collapsedTop, mFirst.getSheetTop());
+    }
+
+    private void dispatch(long downTime, long eventTime, int action, float x, float y) {
+        final MotionEvent event = MotionEvent.obtain(downTime, eventTime, action, x, y, 0);
+        mFirst.parent.dispatchTouchEvent(event);
+        event.recycle();
+    }
+}
@@ -0,0 +1,98 @@
+package com.githang.behavior;
+
+import android.app.Activity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.githang.behavior.SheetFixture.ITEM_HEIGHT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 统计RecyclerView在重新layout时绑定的次数，检查只在收起时重置滚动位置的模式下重新layout不会从头绑定
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-09
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(qualifiers = "w360dp-h640dp-xxhdpi")
+public class ScrollResetBindTest {
+
+    private static final int SCROLL_DISTANCE = ITEM_HEIGHT * 20 + 50;
+
+    private Activity mActivity;
+    private SheetFixture mFixture;
+    private LinearLayoutManager mLayoutManager;
+    private SheetFixture.ItemAdapter mAdapter;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.setupActivity(Activity.class);
+    }
+
+    /**
+     * 创建全展开的布局，并把列表滚动到中间
+     */
+    private void setUpScrolledList(String scrollResetMode) {
+        mAdapter = new SheetFixture.ItemAdapter();
+        final RecyclerView list = SheetFixture.createRecyclerView(mActivity, mAdapter);
+        mLayoutManager = (LinearLayoutManager) list.getLayoutManager();
+        mFixture = new SheetFixture(mActivity, SheetFixture.attributes()
+                .addAttribute(R.attr.behavior_scrollResetMode, scrollResetMode)
+                .build(), list);
+        mFixture.behavior.setState(ScrollLayoutBehavior.STATE_FULL_EXPANDED);
+        mFixture.layout();
+        list.scrollBy(0, SCROLL_DISTANCE);
+        assertEquals(SCROLL_DISTANCE / ITEM_HEIGHT, mLayoutManager.findFirstVisibleItemPosition());
+    }
+
+    /**
+     * 重新layout整个布局，如展开内容在GONE和VISIBLE之间切换时
+     */
+    private void relayout() {
+        mFixture.sheet.requestLayout();
+        mFixture.layout();
+    }
+
+    @Test
+    public void relayoutKeepsViewportWithoutRebinding() {
+        setUpScrolledList("collapsed");
+        final int firstVisible = mLayoutManager.findFirstVisibleItemPosition();
+        final int firstTop = mLayoutManager.findViewByPosition(firstVisible).getTop();
+        mAdapter.binds = 0;
+
+        relayout();
+        assertEquals(0, mAdapter.binds);
+        assertEquals(firstVisible, mLayoutManager.findFirstVisibleItemPosition());
+        assertEquals(firstTop, mLayoutManager.findViewByPosition(firstVisible).getTop());
+    }
+
+    @Test
+    public void collapsingResetsTheList() {
+        setUpScrolledList("collapsed");
+        mFixture.behavior.showCollapsed();
+        mFixture.layoutIfNeeded();
+        // 收起时列表不可见，再次展开后才会layout
+        mFixture.behavior.setState(ScrollLayoutBehavior.STATE_FULL_EXPANDED);
+        mFixture.settle();
+        assertEquals(ScrollLayoutBehavior.STATE_FULL_EXPANDED, mFixture.behavior.getState());
+        assertEquals(0, mLayoutManager.findFirstVisibleItemPosition());
+    }
+
+    @Test
+    public void resetOnLayoutRebindsFromTheTop() {
+        setUpScrolledList("layout");
+        mAdapter.binds = 0;
+
+        relayout();
+        assertEquals(0, mLayoutManager.findFirstVisibleItemPosition());
+        assertTrue(mAdapter.binds > 0);
+    }
+}
@@ -0,0 +1,136 @@
+package com.githang.behavior;
+
+import android.app.Activity;
+import android.content.Context;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.widget.NestedScrollView;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.githang.behavior.SheetFixture.HALF_EXPANDED_SPACE;
+import static com.githang.behavior.SheetFixture.HEIGHT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 检查嵌套滑动子View只在第一次layout及布局变化后查找，拖动过程中的重新layout不会再遍历布局
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-09
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(qualifiers = "w360dp-h640dp-xxhdpi")
+public class ScrollingChildCacheTest {
+
+    /**
+     * 查找嵌套滑动子View时会先经过的View，记录被检查的次数
+     */
+    private static class ProbeView extends View {
+        int visits;
+
+        ProbeView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public boolean isNestedScrollingEnabled() {
+            visits++;
+            return super.isNestedScrollingEnabled();
+        }
+    }
+
+    private SheetFixture mFixture;
+    private FrameLayout mContent;
+    private ProbeView mProbe;
+    private NestedScrollView mList;
+
+    private final int[] mConsumed = new int[2];
+
+    @Before
+    public void setUp() {
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        mContent = new FrameLayout(activity);
+        mProbe = new ProbeView(activity);
+        mContent.addView(mProbe, new FrameLayout.LayoutParams(0, 0));
+        mList = new NestedScrollView(activity);
+        mList.addView(new View(activity), new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, HEIGHT * 3));
+        mContent.addView(mList, new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        mFixture = new SheetFixture(activity, SheetFixture.attributes().build(), mContent);
+        mFixture.behavior.showCollapsed();
+        mFixture.layout();
+    }
+
+    /**
+     * 按列表分发嵌套滑动的方式从收起位置拖到半展开以上再拖回去，展开内容会显示再隐藏
+     */
+    private void dragUpAndBack() {
+        final ScrollLayoutBehavior<SheetFixture.Sheet> behavior = mFixture.behavior;
+        final int distance = mFixture.getSheetTop() - HALF_EXPANDED_SPACE + 100;
+        assertTrue(behavior.onStartNestedScroll(mFixture.parent, mFixture.sheet, mFixture.sheet, mList,
+                ViewCompat.SCROLL_AXIS_VERTICAL, ViewCompat.TYPE_TOUCH));
+        for (int i = 0; i < 10; i++) {
+            preScroll(distance / 10);
+        }
+        for (int i = 0; i < 10; i++) {
+            preScroll(-distance / 10);
+        }
+        behavior.onStopNestedScroll(mFixture.parent, mFixture.sheet, mList, ViewCompat.TYPE_TOUCH);
+        mFixture.settle();
+        assertEquals(ScrollLayoutBehavior.STATE_COLLAPSED, behavior.getState());
+    }
+
+    private void preScroll(int dy) {
+        mConsumed[0] = 0;
+        mConsumed[1] = 0;
+        mFixture.behavior.onNestedPreScroll(mFixture.parent, mFixture.sheet, mList, 0, dy, mConsumed,
+                ViewCompat.TYPE_TOUCH);
+        mFixture.advance(SheetFixture.FRAME_TIME);
+    }
+
+    @Test
+    public void relayoutsDuringDragDoNotWalkTheHierarchy() {
+        assertTrue(mProbe.visits > 0);
+        mProbe.visits = 0;
+        mFixture.sheet.layoutPasses = 0;
+
+        dragUpAndBack();
+        // 展开内容在GONE和VISIBLE之间切换会引起重新layout
+        assertTrue(mFixture.sheet.layoutPasses >= 2);
+        assertTrue("layout passes: " + mFixture.sheet.layoutPasses, mFixture.sheet.layoutPasses <= 4);
+        assertEquals(0, mProbe.visits);
+    }
+
+    @Test
+    public void invalidateScrollingChildWalksOnceOnNextLayout() {
+        mProbe.visits = 0;
+        mFixture.behavior.invalidateScrollingChild();
+        mFixture.sheet.requestLayout();
+        mFixture.layout();
+        assertEquals(1, mProbe.visits);
+
+        mProbe.visits = 0;
+        mFixture.sheet.requestLayout();
+        mFixture.layout();
+        assertEquals(0, mProbe.visits);
+    }
+
+    @Test
+    public void explicitScrollingChildIsNeverSearched() {
+        mFixture.behavior.setScrollingChild(mList);
+        mProbe.visits = 0;
+        mFixture.sheet.requestLayout();
+        mFixture.layout();
+        dragUpAndBack();
+        assertEquals(0, mProbe.visits);
+    }
+}
@@ -0,0 +1,120 @@
+package com.githang.behavior;
+
+import android.app.Activity;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.githang.behavior.SheetFixture.COLLAPSED_HEIGHT;
+import static com.githang.behavior.SheetFixture.FRAME_TIME;
+import static com.githang.behavior.SheetFixture.HALF_EXPANDED_SPACE;
+import static com.githang.behavior.SheetFixture.HEIGHT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 检查沉降过程中连续调用setState时改为沉降到新的位置，保留当前速度，最终停在最后一次设置的状态
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-09
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(qualifiers = "w360dp-h640dp-xxhdpi")
+public class SettleRetargetTest {
+
+    private static final int COLLAPSED_TOP = HEIGHT - COLLAPSED_HEIGHT;
+
+    private SheetFixture mFixture;
+    private ScrollLayoutBehavior<SheetFixture.Sheet> mBehavior;
+    private final StringBuilder mStateChanges = new StringBuilder();
+    private int mLastSlideTop;
+    private boolean mMovedDown;
+
+    @Before
+    public void setUp() {
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        mFixture = new SheetFixture(activity);
+        mBehavior = mFixture.behavior;
+        mBehavior.showCollapsed();
+        mFixture.layout();
+        mLastSlideTop = COLLAPSED_TOP;
+        mBehavior.setScrollLayoutCallback(new ScrollLayoutBehavior.ScrollLayoutCallback() {
+            @Override
+            public void onStateChanged(ViewGroup scrollLayout, int oldState, int newState) {
+                mStateChanges.append(oldState).append("->").append(newState).append(' ');
+            }
+
+            @Override
+            public void onSlide(ViewGroup scrollLayout, ScrollLayoutBehavior behavior, int position) {
+                if (position > mLastSlideTop) {
+                    mMovedDown = true;
+                }
+                mLastSlideTop = position;
+            }
+        });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void anchoredStateNeedsAnAnchor() {
+        mBehavior.setState(ScrollLayoutBehavior.STATE_ANCHORED);
+    }
+
+    @Test
+    public void successiveCallsEndAtTheLastState() {
+        mBehavior.setState(ScrollLayoutBehavior.STATE_FULL_EXPANDED);
+        mBehavior.setState(ScrollLayoutBehavior.STATE_COLLAPSED);
+        mBehavior.setState(ScrollLayoutBehavior.STATE_FULL_EXPANDED);
+        mBehavior.setState(ScrollLayoutBehavior.STATE_HALF_EXPANDED);
+        assertEquals(ScrollLayoutBehavior.STATE_SETTLING, mBehavior.getState());
+
+        mFixture.settle();
+        assertEquals(ScrollLayoutBehavior.STATE_HALF_EXPANDED, mBehavior.getState());
+        assertEquals(HALF_EXPANDED_SPACE, mFixture.getSheetTop());
+        // 只有一次沉降，中间的目标不会停靠
+        assertEquals(ScrollLayoutBehavior.STATE_COLLAPSED + "->" + ScrollLayoutBehavior.STATE_SETTLING + " "
+                        + ScrollLayoutBehavior.STATE_SETTLING + "->" + ScrollLayoutBehavior.STATE_HALF_EXPANDED + " ",
+                mStateChanges.toString());
+        // 一直向上移动，没有两个沉降同时驱动布局
+        assertFalse(mMovedDown);
+    }
+
+    @Test
+    public void retargetKeepsVelocity() {
+        mBehavior.setState(ScrollLayoutBehavior.STATE_FULL_EXPANDED);
+        mFixture.advance(FRAME_TIME);
+        mFixture.advance(FRAME_TIME);
+        final int before = mFixture.getSheetTop();
+        mFixture.advance(FRAME_TIME);
+        final int top = mFixture.getSheetTop();
+        assertTrue(top < before);
+        assertTrue(top > HALF_EXPANDED_SPACE);
+
+        // 反方向改变目标，保留了向上的速度，所以下一帧还会继续向上
+        mBehavior.setState(ScrollLayoutBehavior.STATE_COLLAPSED);
+        assertEquals(ScrollLayoutBehavior.STATE_SETTLING, mBehavior.getState());
+        mFixture.advance(FRAME_TIME);
+        assertTrue(mFixture.getSheetTop() < top);
+
+        mFixture.settle();
+        assertEquals(ScrollLayoutBehavior.STATE_COLLAPSED, mBehavior.getState());
+        assertEquals(COLLAPSED_TOP, mFixture.getSheetTop());
+    }
+
+    @Test
+    public void retargetToTheCurrentTargetDoesNotRestart() {
+        mBehavior.setState(ScrollLayoutBehavior.STATE_HALF_EXPANDED);
+        mFixture.advance(FRAME_TIME);
+        mFixture.advance(FRAME_TIME);
+        mBehavior.setState(ScrollLayoutBehavior.STATE_HALF_EXPANDED);
+        mFixture.settle();
+        assertEquals(ScrollLayoutBehavior.STATE_HALF_EXPANDED, mBehavior.getState());
+        assertEquals(HALF_EXPANDED_SPACE, mFixture.getSheetTop());
+        assertFalse(mMovedDown);
+    }
+}
@@ -0,0 +1,219 @@
+package com.githang.behavior;
+
+import android.app.Activity;
+import android.content.Context;
+import android.support.design.widget.CoordinatorLayout;
+import android.support.v4.widget.NestedScrollView;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+
+import org.robolectric.Robolectric;
+import org.robolectric.android.AttributeSetBuilder;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Robolectric测试共用的布局：CoordinatorLayout中一个使用{@link ScrollLayoutBehavior}的LinearLayout，
+ * 第一个子View为收起内容，第二个子View为嵌套滑动的列表。
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-09
+ */
+class SheetFixture {
+
+    static final int WIDTH = 1080;
+    static final int HEIGHT = 1920;
+    static final int COLLAPSED_HEIGHT = 200;
+    static final int HALF_EXPANDED_SPACE = 800;
+
+    static final int ITEM_COUNT = 100;
+    static final int ITEM_HEIGHT = 200;
+
+    static final int FRAME_TIME = 16;
+    private static final long MAX_SETTLE_TIME = 5000;
+
+    final Activity activity;
+    final CoordinatorLayout parent;
+    final Sheet sheet;
+    final View scrollingChild;
+    final ScrollLayoutBehavior<Sheet> behavior;
+
+    /**
+     * 记录layout次数的布局
+     */
+    static class Sheet extends LinearLayout {
+        int layoutPasses;
+
+        Sheet(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int l, int t, int r, int b) {
+            layoutPasses++;
+            super.onLayout(changed, l, t, r, b);
+        }
+    }
+
+    /**
+     * RecyclerView的adapter，每项高{@link #ITEM_HEIGHT}，记录绑定的次数
+     */
+    static class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        int binds;
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            final View view = new View(parent.getContext());
+            view.setLayoutParams(new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ITEM_HEIGHT));
+            return new RecyclerView.ViewHolder(view) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+            binds++;
+        }
+
+        @Override
+        public int getItemCount() {
+            return ITEM_COUNT;
+        }
+    }
+
+    /**
+     * @return 使用LinearLayoutManager的列表，可以作为嵌套滑动的列表传给构造方法
+     */
+    static RecyclerView createRecyclerView(Context context, ItemAdapter adapter) {
+        final RecyclerView list = new RecyclerView(context);
+        list.setLayoutManager(new LinearLayoutManager(context));
+        list.setAdapter(adapter);
+        return list;
+    }
+
+    /**
+     * @return 已设置半展开位置的属性，可以继续添加其他属性
+     */
+    static AttributeSetBuilder attributes() {
+        return Robolectric.buildAttributeSet()
+                .addAttribute(R.attr.behavior_halfExpandedSpace, HALF_EXPANDED_SPACE + "px");
+    }
+
+    SheetFixture(Activity activity) {
+        this(activity, attributes().build(), null);
+    }
+
+    SheetFixture(Activity activity, AttributeSet attrs) {
+        this(activity, attrs, null);
+    }
+
+    /**
+     * @param scrollingChild 嵌套滑动的列表，为null时使用内容为3倍父布局高度的NestedScrollView
+     */
+    SheetFixture(Activity activity, AttributeSet attrs, View scrollingChild) {
+        this(activity, attrs, scrollingChild, new CoordinatorLayout(activity));
+    }
+
+    private SheetFixture(Activity activity, AttributeSet attrs, View scrollingChild, CoordinatorLayout parent) {
+        this.activity = activity;
+        behavior = new ScrollLayoutBehavior<>(activity, attrs);
+        this.parent = parent;
+        sheet = new Sheet(activity);
+        sheet.setOrientation(LinearLayout.VERTICAL);
+        sheet.addView(new View(activity), new LinearLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, COLLAPSED_HEIGHT));
+        if (scrollingChild == null) {
+            final NestedScrollView list = new NestedScrollView(activity);
+            list.addView(new View(activity), new ViewGroup.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, HEIGHT * 3));
+            scrollingChild = list;
+        }
+        this.scrollingChild = scrollingChild;
+        sheet.addView(scrollingChild, new LinearLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        final CoordinatorLayout.LayoutParams lp = new CoordinatorLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
+        lp.setBehavior(behavior);
+        parent.addView(sheet, lp);
+    }
+
+    /**
+     * @return 同一个父布局中的另一个布局，后加入的显示在上层
+     */
+    SheetFixture addSheet(AttributeSet attrs) {
+        return new SheetFixture(activity, attrs, null, parent);
+    }
+
+    /**
+     * 设为Activity的内容，布局需要显示在窗口中才会处理触摸事件
+     */
+    void attach() {
+        activity.setContentView(parent, new ViewGroup.LayoutParams(WIDTH, HEIGHT));
+    }
+
+    void layout() {
+        parent.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        parent.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    void layoutIfNeeded() {
+        if (parent.isLayoutRequested() || parent.getHeight() != HEIGHT) {
+            layout();
+        }
+    }
+
+    /**
+     * 推进主线程的时钟，执行期间到期的帧回调及layout
+     */
+    void advance(long millis) {
+        while (millis > 0) {
+            final long step = Math.min(millis, FRAME_TIME);
+            ShadowLooper.idleMainLooper(step, TimeUnit.MILLISECONDS);
+            layoutIfNeeded();
+            millis -= step;
+        }
+        ShadowLooper.runUiThreadTasks();
+        layoutIfNeeded();
+    }
+
+    boolean isResting() {
+        final int state = behavior.getState();
+        return state != ScrollLayoutBehavior.STATE_DRAGGING && state != ScrollLayoutBehavior.STATE_SETTLING;
+    }
+
+    /**
+     * 推进时钟直到布局停靠
+     */
+    void settle() {
+        long elapsed = 0;
+        while (!isResting() && elapsed < MAX_SETTLE_TIME) {
+            advance(FRAME_TIME);
+            elapsed += FRAME_TIME;
+        }
+    }
+
+    int getSheetTop() {
+        return sheet.getTop() + Math.round(sheet.getTranslationY());
+    }
+
+    /**
+     * @return 当前线程累计分配的字节数，JVM不支持统计时返回-1
+     */
+    static long allocatedBytes() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
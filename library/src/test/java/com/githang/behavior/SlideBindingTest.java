@@ -0,0 +1,109 @@
+package com.githang.behavior;
+
+import android.app.Activity;
+import android.content.Context;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.githang.behavior.SheetFixture.FRAME_TIME;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 检查binding的值没有变化时不重复设置属性，以及停靠位置作为起止位置
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-10
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(qualifiers = "w360dp-h640dp-xxhdpi")
+public class SlideBindingTest {
+
+    private static final int ANCHOR_SPACE = 1200;
+
+    /**
+     * 记录透明度设置次数的View
+     */
+    private static class CountingView extends View {
+        int alphaWrites;
+
+        CountingView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void setAlpha(float alpha) {
+            alphaWrites++;
+            super.setAlpha(alpha);
+        }
+    }
+
+    private SheetFixture mFixture;
+    private CountingView mView;
+
+    @Before
+    public void setUp() {
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        mFixture = new SheetFixture(activity, SheetFixture.attributes()
+                .addAttribute(R.attr.behavior_initialState, "collapsed")
+                .build());
+        mFixture.behavior.setAnchorSpaces(ANCHOR_SPACE);
+        mFixture.layout();
+        mView = new CountingView(activity);
+    }
+
+    private void settleTo(int state) {
+        mFixture.behavior.setState(state);
+        mFixture.advance(FRAME_TIME);
+        mFixture.settle();
+        assertEquals(state, mFixture.behavior.getState());
+    }
+
+    @Test
+    public void unchangedValuesAreNotWrittenAgain() {
+        mFixture.behavior.addSlideBinding(new SlideBinding.Builder(ScrollLayoutBehavior.STATE_COLLAPSED,
+                ScrollLayoutBehavior.STATE_HALF_EXPANDED)
+                .alpha(mView, 0, 1)
+                .build());
+        assertEquals(1, mView.alphaWrites);
+        assertEquals(0f, mView.getAlpha(), 0f);
+
+        settleTo(ScrollLayoutBehavior.STATE_HALF_EXPANDED);
+        assertEquals(1f, mView.getAlpha(), 0f);
+        final int writes = mView.alphaWrites;
+
+        // 超出binding的范围后比例一直为1，不再设置
+        settleTo(ScrollLayoutBehavior.STATE_FULL_EXPANDED);
+        mFixture.sheet.requestLayout();
+        mFixture.layout();
+        assertEquals(writes, mView.alphaWrites);
+    }
+
+    @Test
+    public void anchorCanBeAnEndOfTheBinding() {
+        int anchorIndex = -1;
+        for (int i = 0; i < mFixture.behavior.getAnchorCount(); i++) {
+            if (mFixture.behavior.getAnchorTop(i) == ANCHOR_SPACE) {
+                anchorIndex = i;
+            }
+        }
+        assertTrue(anchorIndex >= 0);
+        mFixture.behavior.addSlideBinding(new SlideBinding.Builder(ScrollLayoutBehavior.STATE_COLLAPSED,
+                SheetEngine.NO_ANCHOR, ScrollLayoutBehavior.STATE_ANCHORED, 0)
+                .alpha(mView, 0, 1)
+                .build());
+        assertEquals(0f, mView.getAlpha(), 0f);
+
+        mFixture.behavior.settleToAnchor(anchorIndex);
+        mFixture.advance(FRAME_TIME);
+        mFixture.settle();
+        assertEquals(ScrollLayoutBehavior.STATE_ANCHORED, mFixture.behavior.getState());
+        assertEquals(1f, mView.getAlpha(), 0f);
+    }
+}
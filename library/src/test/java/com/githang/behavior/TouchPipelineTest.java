@@ -0,0 +1,80 @@
+package com.githang.behavior;
+
+import android.view.MotionEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 检查每个事件只记录一次，且事件中的历史采样参与速度计算
+ *
+ * @author 黄浩杭 (msdx.android@qq.com)
+ * @since 2018-12-10
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TouchPipelineTest {
+
+    private static final float X = 500;
+    private static final int MAX_VELOCITY = 100000;
+
+    private TouchPipeline mPipeline;
+
+    @Before
+    public void setUp() {
+        mPipeline = new TouchPipeline();
+    }
+
+    @After
+    public void tearDown() {
+        mPipeline.recycle();
+    }
+
+    @Test
+    public void sameEventIsRecordedOnce() {
+        final MotionEvent down = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, X, 1000, 0);
+        // onInterceptTouchEvent和onTouchEvent收到同一个事件
+        assertTrue(mPipeline.addMovement(down));
+        assertFalse(mPipeline.addMovement(down));
+        down.recycle();
+    }
+
+    @Test
+    public void distinctEventsWithSameValuesAreBothRecorded() {
+        final MotionEvent down = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, X, 1000, 0);
+        final MotionEvent first = MotionEvent.obtain(0, 16, MotionEvent.ACTION_MOVE, X, 900, 0);
+        final MotionEvent second = MotionEvent.obtain(0, 16, MotionEvent.ACTION_MOVE, X, 900, 0);
+        assertTrue(mPipeline.addMovement(down));
+        assertTrue(mPipeline.addMovement(first));
+        assertTrue(mPipeline.addMovement(second));
+        down.recycle();
+        first.recycle();
+        second.recycle();
+    }
+
+    @Test
+    public void historicalSamplesFeedTheVelocity() {
+        final MotionEvent down = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, X, 1000, 0);
+        // 按下后停住250ms，之后的一个事件批量带来这50ms内每10ms上移100px的采样
+        final MotionEvent move = MotionEvent.obtain(0, 250, MotionEvent.ACTION_MOVE, X, 1000, 0);
+        move.addBatch(260, X, 900, 1, 1, 0);
+        move.addBatch(270, X, 800, 1, 1, 0);
+        move.addBatch(280, X, 700, 1, 1, 0);
+        move.addBatch(290, X, 600, 1, 1, 0);
+        move.addBatch(300, X, 500, 1, 1, 0);
+        assertEquals(5, move.getHistorySize());
+        mPipeline.addMovement(down);
+        mPipeline.addMovement(move);
+
+        // 不读历史采样时最近100ms内只有当前一个采样，算不出这个速度
+        assertEquals(-10000, mPipeline.getYVelocity(MAX_VELOCITY), 1000);
+        down.recycle();
+        move.recycle();
+    }
+}